@@ -0,0 +1,33 @@
+package com.gdut;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of benchmarks.jar: the usual JMH command line, except that the GC profiler
+// is on by default, so every result also reports gc.alloc.rate.norm (bytes allocated per
+// op). -no-gc turns it off, e.g. for quick timing-only runs.
+public class Benchmarks {
+    static final String NO_GC = "-no-gc";
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(List.of(args));
+        boolean gc = !jmhArgs.remove(NO_GC);
+        CommandLineOptions cmd = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+            return;
+        }
+        OptionsBuilder opts = new OptionsBuilder();
+        opts.parent(cmd);
+        if (gc && cmd.getProfilers().stream().noneMatch(p -> p.getKlass().equals("gc")
+                || p.getKlass().equals(GCProfiler.class.getName()))) {
+            opts.addProfiler(GCProfiler.class);
+        }
+        new Runner(opts.build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.gdut;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Inserting a batch of generated candidates (duplicates included) into an empty dedupe
+// set; the score is per batch. hashSet is the old HashSet<String> of getCanonical.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DedupeBench {
+    @Param({"10", "100"})
+    int range;
+
+    @Param({"1024", "65536"})
+    int batch;
+
+    private Expr[] candidates;
+    private String[] canonicals;
+
+    @Setup
+    public void setup() {
+        candidates = new Expr[batch];
+        canonicals = new String[batch];
+        SplittableRandom rand = new SplittableRandom(42);
+        FractionStack st = new FractionStack();
+        for (int i = 0; i < batch; i++) {
+            Expr[] one = ExprBench.validExprs(range, 1 + rand.nextInt(3), 1, rand);
+            st.clear();
+            one[0].analyze(st);  // memoizes the keys, as the generator's workers do
+            candidates[i] = one[0];
+            canonicals[i] = one[0].getCanonical();
+        }
+    }
+
+    @Benchmark
+    public int canonicalSet() {
+        CanonicalSet set = new CanonicalSet();
+        for (Expr e : candidates) set.add(e);
+        return set.size();
+    }
+
+    @Benchmark
+    public int canonicalSetOffHeap() {
+        CanonicalSet set = new CanonicalSet(1024, true);
+        for (Expr e : candidates) set.add(e);
+        return set.size();
+    }
+
+    @Benchmark
+    public int hashSet() {
+        Set<String> set = new HashSet<>();
+        for (String s : canonicals) set.add(s);
+        return set.size();
+    }
+}
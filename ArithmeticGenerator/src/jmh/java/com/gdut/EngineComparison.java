@@ -0,0 +1,196 @@
+package com.gdut;
+
+import com.example.ExpressionGenerator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs this module's GenerationEngine and project2's ExpressionGenerator on the same seeded
+// workloads (n, -r, seed) and reports, per engine and workload: throughput, the share of
+// candidates accepted / rejected as invalid / rejected as duplicates, bytes allocated, and
+// peak heap. Generation is in memory, single-threaded by default, so file output does not
+// blur the comparison. Every (engine, workload) pair runs in its own JVM, like a JMH fork,
+// so one engine's garbage and JIT state never leak into another's numbers.
+//
+//   java -cp target/benchmarks.jar com.gdut.EngineComparison [-w <n>:<range> ...]
+//        [--seed <seed>] [--reps <k>] [-t <threads>] [--jvm <option> ...]
+//
+// project2 draws operands below -r and proper fractions with denominators up to -r, and
+// loops until it has n problems, so keep n well inside its problem space.
+public class EngineComparison {
+    static final String[] ENGINES = {"gdut", "gdut-pool", "gdut-adaptive", "example"};
+    static final String[] DEFAULT_WORKLOADS = {"10000:10", "100000:20", "1000000:100"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            child(args);
+            return;
+        }
+        List<String> workloads = new ArrayList<>();
+        List<String> jvmOptions = new ArrayList<>();
+        long seed = 42;
+        int reps = 3, threads = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-w" -> workloads.add(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--reps" -> reps = Integer.parseInt(args[i + 1]);
+                case "-t" -> threads = Integer.parseInt(args[i + 1]);
+                case "--jvm" -> jvmOptions.add(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (workloads.isEmpty()) workloads.addAll(Arrays.asList(DEFAULT_WORKLOADS));
+
+        System.out.printf("%-10s %9s %5s %14s %9s %9s %9s %12s %12s %10s%n", "engine", "n", "r",
+                "problems/s", "accepted", "invalid", "dupes", "B/problem", "alloc MB/s", "peak MB");
+        for (String w : workloads) {
+            String[] nr = w.split(":");
+            for (String engine : ENGINES) {
+                Result r = fork(engine, Integer.parseInt(nr[0]), Integer.parseInt(nr[1]), seed, reps, threads, jvmOptions);
+                System.out.printf("%-10s %9d %5d %14.0f %8.1f%% %8.1f%% %8.1f%% %12.0f %12.1f %10.1f%n", engine,
+                        r.n, r.range, r.n / (r.nanos / 1e9), pct(r.accepted, r.attempts), pct(r.invalid, r.attempts),
+                        pct(r.duplicates, r.attempts), r.allocated / (double) r.n,
+                        r.allocated / (r.nanos / 1e9) / (1 << 20), r.peakHeap / (double) (1 << 20));
+            }
+        }
+    }
+
+    private static double pct(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    private static Result fork(String engine, int n, int range, long seed, int reps, int threads,
+                               List<String> jvmOptions) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(ProcessHandle.current().info().command().orElse("java"));
+        cmd.addAll(jvmOptions);
+        cmd.addAll(List.of("-cp", System.getProperty("java.class.path"), EngineComparison.class.getName(), "--child",
+                engine, Integer.toString(n), Integer.toString(range), Long.toString(seed), Integer.toString(reps),
+                Integer.toString(threads)));
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        Result result = null;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            for (String line; (line = out.readLine()) != null; ) {
+                if (line.startsWith("RESULT ")) {
+                    result = Result.parse(line);
+                } else {
+                    System.err.println("[" + engine + "] " + line);
+                }
+            }
+        }
+        if (p.waitFor() != 0 || result == null) {
+            throw new IllegalStateException(engine + " failed on n=" + n + " r=" + range);
+        }
+        return result;
+    }
+
+    // One engine, one workload: a warm-up run, then reps measured runs. Reports the median
+    // time, the mean allocation and the highest peak heap of the measured runs.
+    private static void child(String[] args) {
+        String engine = args[1];
+        int n = Integer.parseInt(args[2]), range = Integer.parseInt(args[3]);
+        long seed = Long.parseLong(args[4]);
+        int reps = Integer.parseInt(args[5]), threads = Integer.parseInt(args[6]);
+
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) heapPools.add(pool);
+        }
+
+        run(engine, n, range, seed, threads);
+        long[] nanos = new long[reps];
+        long allocated = 0, peak = 0;
+        Result last = null;
+        for (int i = 0; i < reps; i++) {
+            System.gc();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            long a0 = mx.getTotalThreadAllocatedBytes(), t0 = System.nanoTime();
+            last = run(engine, n, range, seed, threads);
+            nanos[i] = System.nanoTime() - t0;
+            allocated += mx.getTotalThreadAllocatedBytes() - a0;
+            // Per-pool peaks need not coincide, so their sum is an upper bound
+            long used = 0;
+            for (MemoryPoolMXBean pool : heapPools) used += pool.getPeakUsage().getUsed();
+            peak = Math.max(peak, used);
+        }
+        Arrays.sort(nanos);
+        last.nanos = nanos[reps / 2];
+        last.allocated = allocated / reps;
+        last.peakHeap = peak;
+        System.out.println(last.format());
+    }
+
+    // Counts are taken from the engine that produced the run
+    private static Result run(String engine, int n, int range, long seed, int threads) {
+        Result r = new Result();
+        r.range = range;
+        switch (engine) {
+            case "gdut", "gdut-pool", "gdut-adaptive" -> {
+                GenerationEngine e = new GenerationEngine(ArithmeticGenerator.buildLeaves(range), seed, threads,
+                        engine.equals("gdut-pool"), false, engine.equals("gdut-adaptive"));
+                try {
+                    r.n = e.run(n, new ProblemSink() {
+                        @Override
+                        public void accept(Problem p) {
+                        }
+                    });
+                } catch (IOException impossible) {
+                    throw new IllegalStateException(impossible);
+                }
+                r.attempts = e.attempts();
+                r.invalid = e.invalid();
+                r.duplicates = e.duplicates();
+                r.accepted = r.n;
+            }
+            case "example" -> {
+                ExpressionGenerator g = new ExpressionGenerator(n, range, seed);
+                int[] count = {0};
+                try {
+                    g.generate((number, expr, value) -> count[0]++);
+                } catch (IOException impossible) {
+                    throw new IllegalStateException(impossible);
+                }
+                r.n = count[0];
+                r.attempts = g.getAttempts();
+                r.invalid = g.getRejectedInvalid();
+                r.duplicates = g.getRejectedDuplicate();
+                r.accepted = r.n;
+            }
+            default -> throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+        return r;
+    }
+
+    static class Result {
+        int n, range;
+        long attempts, accepted, invalid, duplicates, nanos, allocated, peakHeap;
+
+        String format() {
+            return "RESULT " + n + " " + range + " " + attempts + " " + accepted + " " + invalid + " " + duplicates
+                    + " " + nanos + " " + allocated + " " + peakHeap;
+        }
+
+        static Result parse(String line) {
+            String[] f = line.split(" ");
+            Result r = new Result();
+            r.n = Integer.parseInt(f[1]);
+            r.range = Integer.parseInt(f[2]);
+            r.attempts = Long.parseLong(f[3]);
+            r.accepted = Long.parseLong(f[4]);
+            r.invalid = Long.parseLong(f[5]);
+            r.duplicates = Long.parseLong(f[6]);
+            r.nanos = Long.parseLong(f[7]);
+            r.allocated = Long.parseLong(f[8]);
+            r.peakHeap = Long.parseLong(f[9]);
+            return r;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.gdut;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Per-expression costs of valid problems with exactly ops operators: evaluation, the
+// generator's validation and canonicalization, and the two grading evaluators
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExprBench {
+    static final int SIZE = 1024;
+    private static final String[] OPS = {"+", "-", "*", "/"};
+
+    @Param({"10", "100"})
+    int range;
+
+    @Param({"1", "2", "3"})
+    int ops;
+
+    private Expr[] exprs;
+    private String[] infix;
+    private final FractionStack st = new FractionStack();
+    private final CanonicalSet.Encoding encoding = new CanonicalSet.Encoding();
+
+    @Setup
+    public void setup() {
+        exprs = validExprs(range, ops, SIZE, new SplittableRandom(42));
+        infix = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) infix[i] = exprs[i].toInfix();
+    }
+
+    // count valid trees with exactly ops operators over the leaves of range
+    static Expr[] validExprs(int range, int ops, int count, SplittableRandom rand) {
+        List<Leaf> leaves = new ArrayList<>();
+        for (Fraction f : ArithmeticGenerator.buildLeaves(range)) leaves.add(new Leaf(f));
+        Expr[] out = new Expr[count];
+        for (int i = 0; i < count; ) {
+            Expr e = tree(ops, leaves, rand);
+            if (e.isValid()) out[i++] = e;
+        }
+        return out;
+    }
+
+    private static Expr tree(int ops, List<Leaf> leaves, SplittableRandom rand) {
+        if (ops == 0) return leaves.get(rand.nextInt(leaves.size()));
+        int left = rand.nextInt(ops);
+        return new Binary(OPS[rand.nextInt(OPS.length)], tree(left, leaves, rand), tree(ops - 1 - left, leaves, rand));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long eval() {
+        long sink = 0;
+        for (Expr e : exprs) sink += e.eval().getDenominator();
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long isValid() {
+        long sink = 0;
+        for (Expr e : exprs) sink += e.isValid() ? 1 : 0;
+        return sink;
+    }
+
+    // The generator's single pass: validate, evaluate and key
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long analyze() {
+        long sink = 0;
+        for (Expr e : exprs) {
+            st.clear();
+            if (e.analyze(st)) sink += st.pop().getDenominator();
+        }
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public CanonicalSet.Encoding encodeCanonical() {
+        for (Expr e : exprs) {
+            encoding.clear();
+            e.encodeCanonical(encoding);
+        }
+        return encoding;
+    }
+
+    // getCanonical memoizes per node, so every call works on a freshly parsed tree
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long parseAndGetCanonical() {
+        ArithmeticGenerator.Parser parser = ArithmeticGenerator.Parser.local();
+        long sink = 0;
+        for (String s : infix) sink += parser.reset(s).parse().getCanonical().length();
+        return sink;
+    }
+
+    // Grading, tree route: Parser.parse().eval()
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long parseAndEval() {
+        ArithmeticGenerator.Parser parser = ArithmeticGenerator.Parser.local();
+        long sink = 0;
+        for (String s : infix) sink += parser.reset(s).parse().eval().getDenominator();
+        return sink;
+    }
+
+    // Grading, one pass: DirectEvaluator
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long directEvaluate() {
+        DirectEvaluator direct = DirectEvaluator.local();
+        long sink = 0;
+        for (String s : infix) sink += direct.evaluate(s).getDenominator();
+        return sink;
+    }
+}
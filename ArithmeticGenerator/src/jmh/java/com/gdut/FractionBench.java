@@ -0,0 +1,72 @@
+package com.gdut;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Fraction arithmetic on operand pairs drawn from the leaves of a given -r
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FractionBench {
+    private static final int SIZE = 1024;
+
+    @Param({"10", "100"})
+    int range;
+
+    private Fraction[] values;
+
+    @Setup
+    public void setup() {
+        List<Fraction> leaves = ArithmeticGenerator.buildLeaves(range);
+        SplittableRandom rand = new SplittableRandom(42);
+        values = new Fraction[SIZE];
+        for (int i = 0; i < SIZE; i++) values[i] = leaves.get(rand.nextInt(leaves.size()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public long add() {
+        long sink = 0;
+        for (int i = 1; i < SIZE; i++) sink += values[i - 1].add(values[i]).getDenominator();
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public long subtract() {
+        long sink = 0;
+        for (int i = 1; i < SIZE; i++) sink += values[i - 1].subtract(values[i]).getDenominator();
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public long multiply() {
+        long sink = 0;
+        for (int i = 1; i < SIZE; i++) sink += values[i - 1].multiply(values[i]).getNumerator();
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public long divide() {
+        long sink = 0;
+        for (int i = 1; i < SIZE; i++) {
+            if (values[i].getNumerator() != 0) sink += values[i - 1].divide(values[i]).getNumerator();
+        }
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public long compare() {
+        long sink = 0;
+        for (int i = 1; i < SIZE; i++) sink += values[i - 1].compareTo(values[i]);
+        return sink;
+    }
+}
@@ -0,0 +1,54 @@
+package com.gdut;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end generation of n problems: in memory, and through the same queued file sink
+// that ArithmeticGenerator.generate uses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateBench {
+    @Param({"100000"})
+    int n;
+
+    @Param({"20", "100"})
+    int range;
+
+    @Param({"1", "4"})
+    int threads;
+
+    @Param({"false", "true"})
+    boolean pool;
+
+    private Path dir;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("generate-bench");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (String f : new String[]{"Exercises.txt", "Answers.txt"}) Files.deleteIfExists(dir.resolve(f));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int inMemory() {
+        return new GenerationEngine(ArithmeticGenerator.buildLeaves(range), 42L, threads, pool).run(n).size();
+    }
+
+    @Benchmark
+    public int toFiles() throws IOException {
+        try (ProblemSink sink = new QueuedSink(new FileProblemSink(dir), QueuedSink.CAPACITY)) {
+            return new GenerationEngine(ArithmeticGenerator.buildLeaves(range), 42L, threads, pool).run(n, sink);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.gdut;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end grading of n generated problems (all answers correct): evaluating every
+// exercise, and against the complete answer key written at generation time (--trust)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GradeBench {
+    @Param({"100000"})
+    int n;
+
+    @Param({"20"})
+    int range;
+
+    @Param({"1", "4"})
+    int threads;
+
+    private Path dir, exercises, answers;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("grade-bench");
+        exercises = dir.resolve("Exercises.txt");
+        answers = dir.resolve("Answers.txt");
+        try (ProblemSink sink = new FileProblemSink(dir, true, OutputBuffer.DEFAULT_FLUSH, false, 1)) {
+            new GenerationEngine(ArithmeticGenerator.buildLeaves(range), 42L, 1).run(n, sink);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(exercises);
+        Files.deleteIfExists(answers);
+        Files.deleteIfExists(AnswerKey.sidecar(exercises));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int evaluate() throws IOException {
+        return new Grader(threads).grade(exercises, answers).correct.length;
+    }
+
+    @Benchmark
+    public int trustKey() throws IOException {
+        return new Grader(threads, AnswerKey.sidecar(exercises), true).grade(exercises, answers).correct.length;
+    }
+}
@@ -0,0 +1,95 @@
+package com.gdut;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The overflow-checked Fraction against the unchecked long arithmetic it replaced, on the
+// same operands: add, multiply and compareTo of neighbouring pairs. The checked fast path
+// should cost no more than the legacy code.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegacyFractionBench {
+    private static final int SIZE = 4096;
+
+    // Copy of the pre-overflow-check arithmetic, kept only as the baseline
+    static final class LegacyFraction {
+        final long num;
+        final long den;
+
+        LegacyFraction(long num, long den) {
+            long g = gcd(Math.abs(num), Math.abs(den));
+            long n = num / g, d = den / g;
+            if (d < 0) {
+                d = -d;
+                n = -n;
+            }
+            this.num = n;
+            this.den = d;
+        }
+
+        static long gcd(long a, long b) {
+            while (b != 0) {
+                long t = b;
+                b = a % b;
+                a = t;
+            }
+            return a;
+        }
+
+        LegacyFraction add(LegacyFraction o) {
+            return new LegacyFraction(num * o.den + o.num * den, den * o.den);
+        }
+
+        LegacyFraction multiply(LegacyFraction o) {
+            return new LegacyFraction(num * o.num, den * o.den);
+        }
+
+        int compareTo(LegacyFraction o) {
+            long diff = num * o.den - o.num * den;
+            return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+        }
+    }
+
+    private LegacyFraction[] legacy;
+    private Fraction[] current;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        legacy = new LegacyFraction[SIZE];
+        current = new Fraction[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            long den = rand.nextInt(10) + 1;
+            long num = rand.nextInt(100);
+            legacy[i] = new LegacyFraction(num, den);
+            current[i] = new Fraction(num, den);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public long legacy() {
+        long sink = 0;
+        for (int i = 1; i < SIZE; i++) {
+            LegacyFraction a = legacy[i - 1], b = legacy[i];
+            sink += a.add(b).den + a.multiply(b).num + a.compareTo(b);
+        }
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE - 1)
+    public long checked() {
+        long sink = 0;
+        for (int i = 1; i < SIZE; i++) {
+            Fraction a = current[i - 1], b = current[i];
+            sink += a.add(b).getDenominator() + a.multiply(b).getNumerator() + a.compareTo(b);
+        }
+        return sink;
+    }
+}
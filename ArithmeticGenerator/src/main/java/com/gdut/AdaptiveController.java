@@ -0,0 +1,169 @@
+package com.gdut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+// --adaptive: replaces generateExpr's fixed shape (leaf with probability 0.4, uniform
+// operators, uniform over a leaf list that is mostly mixed fractions) with a sampler whose
+// operator count, operator and operand class distributions follow the acceptance seen so
+// far. Each choice is drawn in proportion to its yield (accepted per candidate, which folds
+// in both rule rejections and duplicates) over the last measured epoch, for operator counts
+// per unit of work (see sizeCosts), blended with a uniform share so that no operator count,
+// operator or operand class drops out of the mix.
+//
+// Settings change per epoch of EPOCH_BATCHES batches. Epoch e uses the settings fitted
+// from epoch e - LAG, which has been merged before any batch of epoch e is submitted (at
+// most WINDOW batches are ahead of the merge), so like everything else the output depends
+// only on the seed and the parameters. The first LAG epochs use generateExpr itself.
+class AdaptiveController {
+    static final int EPOCH_BATCHES = 16;
+    static final int LAG = GenerationEngine.WINDOW / EPOCH_BATCHES + 1;
+    // Share of every distribution spread uniformly, and how far one epoch moves the rest
+    static final double UNIFORM = 0.1, STEP = 0.5;
+    // What one dedupe probe costs in generated nodes. Wall-clock phase times would make the
+    // output depend on timing, so the cost model counts work instead and converts with this
+    // ratio, which --stats reports as measured (2.5-6 for -r 10..100). Across 2-8 no fitted
+    // weight moves by more than about 0.1 and their order stays put (AdaptiveControllerTest).
+    static final double PROBE_NODES = 4;
+    private static final double[] UNIT_COST = {1, 1, 1, 1};
+    private static final String[] OPS = {"+", "-", "*", "/"};
+
+    private final Leaf[][] byClass = new Leaf[Leaf.CLASSES][];
+    // Epoch e's settings live in slot e % slots.length until epoch e is fully merged
+    private final Settings[] slots = new Settings[LAG + 1];
+    private Settings current;
+    // Run totals at the end of the previous epoch
+    private final GenerationStats seen = new GenerationStats();
+
+    AdaptiveController(List<Leaf> leaves) {
+        List<List<Leaf>> classes = new ArrayList<>();
+        for (int c = 0; c < Leaf.CLASSES; c++) classes.add(new ArrayList<>());
+        for (Leaf leaf : leaves) classes.get(leaf.operandClass()).add(leaf);
+        for (int c = 0; c < Leaf.CLASSES; c++) byClass[c] = classes.get(c).toArray(new Leaf[0]);
+    }
+
+    // Null while the sampler is still generateExpr
+    Settings settings(long batch) {
+        long epoch = batch / EPOCH_BATCHES;
+        return epoch < LAG ? null : slots[(int) (epoch % slots.length)];
+    }
+
+    // Called by the merge stage after each batch, with the run totals including it
+    void merged(long batch, GenerationStats totals) {
+        if ((batch + 1) % EPOCH_BATCHES != 0) return;
+        long[] sizes = delta(totals.candidateSize, seen.candidateSize);
+        long[] sizesAccepted = delta(totals.acceptedSize, seen.acceptedSize);
+        long[] sizesValid = delta(totals.validSize, seen.validSize);
+        long[] ops = delta(totals.candidateOperators, seen.candidateOperators);
+        long[] opsAccepted = delta(totals.acceptedOperators, seen.acceptedOperators);
+        long[] classes = delta(totals.candidateOperands, seen.candidateOperands);
+        long[] classesAccepted = delta(totals.acceptedOperands, seen.acceptedOperands);
+
+        double[] present = new double[Leaf.CLASSES];
+        for (int c = 0; c < present.length; c++) present[c] = byClass[c].length == 0 ? 0 : 1;
+        Settings next = new Settings(
+                fit(current == null ? null : current.sizes, sizesAccepted, sizes,
+                        sizeCosts(sizes, sizesValid, PROBE_NODES)),
+                fit(current == null ? null : current.operators, opsAccepted, ops, UNIT_COST),
+                fit(current == null ? null : current.operands, classesAccepted, classes, present));
+        current = next;
+        slots[(int) ((batch / EPOCH_BATCHES + LAG) % slots.length)] = next;
+    }
+
+    // Work per candidate with k operators, in generated nodes: its 2k + 1 nodes, plus a probe
+    // for the share of them that passed the rules in the last epoch (smoothed like the yields)
+    static double[] sizeCosts(long[] candidates, long[] valid, double probeNodes) {
+        double[] cost = new double[candidates.length];
+        for (int k = 0; k < cost.length; k++) {
+            cost[k] = 2 * k + 1 + probeNodes * (valid[k] + 1.0) / (candidates[k] + 2.0);
+        }
+        return cost;
+    }
+
+    private static long[] delta(long[] now, long[] before) {
+        long[] d = new long[now.length];
+        for (int i = 0; i < now.length; i++) d[i] = now[i] - before[i];
+        System.arraycopy(now, 0, before, 0, now.length);
+        return d;
+    }
+
+    // New weights: yields (smoothed so an unsampled choice is not written off) per unit of
+    // cost, normalized, blended with the uniform share, then moved STEP of the way from the
+    // old weights. A choice of cost 0 is unavailable and keeps weight 0.
+    static double[] fit(double[] old, long[] accepted, long[] candidates, double[] cost) {
+        int choices = 0;
+        double total = 0;
+        double[] yield = new double[candidates.length];
+        for (int i = 0; i < yield.length; i++) {
+            if (cost[i] == 0) continue;
+            choices++;
+            yield[i] = (accepted[i] + 1.0) / (candidates[i] + 2.0) / cost[i];
+            total += yield[i];
+        }
+        double[] w = new double[yield.length];
+        for (int i = 0; i < w.length; i++) {
+            if (cost[i] == 0) continue;
+            w[i] = (1 - UNIFORM) * yield[i] / total + UNIFORM / choices;
+            if (old != null) w[i] = old[i] + STEP * (w[i] - old[i]);
+        }
+        return w;
+    }
+
+    // Immutable, so workers can share one instance. Each distribution is a table of TABLE
+    // entries (a choice of weight w fills about w * TABLE of them), so a node costs one
+    // nextLong: the low bits index the table, the high 32 bits pick within the choice.
+    final class Settings {
+        static final int TABLE = 1024;
+
+        final double[] sizes, operators, operands;
+        private final int[] sizeTable = new int[TABLE];
+        private final String[] operatorTable = new String[TABLE];
+        private final Leaf[][] operandTable = new Leaf[TABLE][];
+
+        Settings(double[] sizes, double[] operators, double[] operands) {
+            this.sizes = sizes;
+            this.operators = operators;
+            this.operands = operands;
+            int[] choice = table(sizes);
+            System.arraycopy(choice, 0, sizeTable, 0, TABLE);
+            choice = table(operators);
+            for (int i = 0; i < TABLE; i++) operatorTable[i] = OPS[choice[i]];
+            choice = table(operands);
+            for (int i = 0; i < TABLE; i++) operandTable[i] = byClass[choice[i]];
+        }
+
+        // Entry boundaries at the rounded cumulative weights
+        private int[] table(double[] weights) {
+            double total = 0;
+            for (double w : weights) total += w;
+            int[] choice = new int[TABLE];
+            double cumulative = 0;
+            int from = 0;
+            for (int c = 0; c < weights.length; c++) {
+                if (weights[c] == 0) continue;
+                cumulative += weights[c];
+                int to = (int) Math.round(cumulative / total * TABLE);
+                for (int i = from; i < to; i++) choice[i] = c;
+                from = Math.max(from, to);
+            }
+            for (int i = from; i < TABLE; i++) choice[i] = choice[from - 1];
+            return choice;
+        }
+
+        // A tree with a drawn number of operators, split between the subtrees as in generateExpr
+        Expr next(RandomGenerator rand) {
+            return tree(sizeTable[rand.nextInt(TABLE)], rand);
+        }
+
+        private Expr tree(int ops, RandomGenerator rand) {
+            long x = rand.nextLong();
+            if (ops == 0) {
+                Leaf[] members = operandTable[(int) x & (TABLE - 1)];
+                return members[(int) (((x >>> 32) * members.length) >>> 32)];
+            }
+            int leftOps = (int) (((x >>> 32) * ops) >>> 32);
+            return new Binary(operatorTable[(int) x & (TABLE - 1)], tree(leftOps, rand), tree(ops - 1 - leftOps, rand));
+        }
+    }
+}
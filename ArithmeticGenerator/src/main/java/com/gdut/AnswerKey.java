@@ -0,0 +1,191 @@
+package com.gdut;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+// Binary sidecar "<exercises>.key" holding each exercise's value by line number:
+// a header [magic int][version short][flags short][count long][exercises size long]
+// [exercises mtime long], then one 24-byte record per line [fingerprint long][num long]
+// [den long]. den == 0 marks a line without a usable value (it did not parse, or the value
+// needs BigInteger); COMPLETE in flags says there is none. The fingerprint is 64-bit FNV-1a
+// over the expression text between "N." and "=", so renumbering a line does not invalidate
+// it. Size and mtime (milliseconds) are those of the exercise file when the key was
+// committed, -1 if there was none; a trusted key is only used while they still match.
+// Keys come from grading with --cache or are written by the generator with --key.
+public class AnswerKey implements Closeable {
+    static final int MAGIC = 0x41474B31;  // "AGK1"
+    static final short VERSION = 2;
+    static final short COMPLETE = 1;
+    static final int HEADER = 32, RECORD = 24;
+
+    private final FileChannel ch;
+    private final long count;
+    private final boolean complete;
+    private final long exercisesSize, exercisesModified;
+
+    private AnswerKey(FileChannel ch, long count, boolean complete, long exercisesSize, long exercisesModified) {
+        this.ch = ch;
+        this.count = count;
+        this.complete = complete;
+        this.exercisesSize = exercisesSize;
+        this.exercisesModified = exercisesModified;
+    }
+
+    static Path sidecar(Path exercises) {
+        return exercises.resolveSibling(exercises.getFileName() + ".key");
+    }
+
+    // Null when there is no key or it is not one we understand; a stale key is never an error
+    static AnswerKey open(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(ch, header, 0);
+        header.flip();
+        boolean valid = header.remaining() == HEADER && header.getInt() == MAGIC && header.getShort() == VERSION;
+        short flags = valid ? header.getShort() : 0;
+        long count = valid ? header.getLong() : -1;
+        if (count < 0 || ch.size() < HEADER + count * RECORD) {
+            ch.close();
+            return null;
+        }
+        return new AnswerKey(ch, count, (flags & COMPLETE) != 0, header.getLong(), header.getLong());
+    }
+
+    // [size, mtime] of the exercise file, or -1s if it does not exist
+    private static long[] stamp(Path exercises) throws IOException {
+        if (!Files.isRegularFile(exercises)) return new long[]{-1, -1};
+        return new long[]{Files.size(exercises), Files.getLastModifiedTime(exercises).toMillis()};
+    }
+
+    // False when exercises was rewritten since the key was committed (e.g. by a generate run
+    // without --key). A missing exercise file cannot contradict the key.
+    boolean describes(Path exercises) throws IOException {
+        long[] now = stamp(exercises);
+        return now[0] < 0 || now[0] == exercisesSize && now[1] == exercisesModified;
+    }
+
+    long count() {
+        return count;
+    }
+
+    // Every record carries a value, so grading never has to look at the exercises
+    boolean complete() {
+        return complete;
+    }
+
+    // Records for lines [first, first + n) that exist in the key, flipped for reading
+    ByteBuffer read(long first, int n, ByteBuffer buf) throws IOException {
+        buf.clear();
+        long available = Math.max(0, Math.min(n, count - first));
+        buf.limit((int) (available * RECORD));
+        readFully(ch, buf, HEADER + first * RECORD);
+        buf.flip();
+        return buf;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+
+    static long fingerprint(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    static void putRecord(ByteBuffer buf, long fingerprint, Fraction value) {
+        buf.putLong(fingerprint);
+        if (value == null || value.isBig()) {
+            buf.putLong(0).putLong(0);
+        } else {
+            buf.putLong(value.getNumerator()).putLong(value.getDenominator());
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, pos);
+            if (r < 0) break;
+            pos += r;
+        }
+    }
+
+    // Builds a key in a temporary file next to the target and moves it into place on commit,
+    // so an interrupted run leaves the previous key intact. Records are either appended in
+    // line order from one thread, or written by line range from several threads at once
+    // as long as the ranges do not overlap.
+    static class Writer implements Closeable {
+        private final Path target, temp, exercises;
+        private final FileChannel ch;
+        private final ByteBuffer pending = ByteBuffer.allocate(4096 * RECORD);
+        private long appended;
+        private boolean complete = true;
+        private boolean committed;
+
+        // exercises is the file the key describes; it is stamped into the header on commit
+        Writer(Path target, Path exercises) throws IOException {
+            this.target = target;
+            this.exercises = exercises;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.ch = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(long first, ByteBuffer records) throws IOException {
+            records.flip();
+            long pos = HEADER + first * RECORD;
+            while (records.hasRemaining()) pos += ch.write(records, pos);
+        }
+
+        void append(long fingerprint, Fraction value) throws IOException {
+            if (!pending.hasRemaining()) flush();
+            putRecord(pending, fingerprint, value);
+            if (value == null || value.isBig()) complete = false;
+        }
+
+        private void flush() throws IOException {
+            long n = pending.position() / RECORD;
+            write(appended, pending);
+            appended += n;
+            pending.clear();
+        }
+
+        // For keys built with append(): the count is the number of records appended
+        void commit() throws IOException {
+            if (pending.position() > 0) flush();
+            commit(appended, true);
+        }
+
+        // complete is ANDed with what append() saw
+        void commit(long count, boolean complete) throws IOException {
+            if (pending.position() > 0) flush();
+            short flags = complete && this.complete ? COMPLETE : 0;
+            long[] stamp = stamp(exercises);
+            ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putShort(VERSION).putShort(flags).putLong(count)
+                    .putLong(stamp[0]).putLong(stamp[1]);
+            header.flip();
+            long pos = 0;
+            while (header.hasRemaining()) pos += ch.write(header, pos);
+            ch.truncate(HEADER + count * RECORD);
+            ch.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                ch.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
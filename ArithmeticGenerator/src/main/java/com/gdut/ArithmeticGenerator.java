@@ -1,48 +1,112 @@
 package com.gdut;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 public class ArithmeticGenerator {
     private static final String[] OPS = {"+", "-", "*", "/"};
 
     public static void main(String[] args) {
-        int numProblems = 10;
-        int range = -1;
-        String exerciseFile = null;
-        String answerFile = null;
+        Options opts = Options.parse(args);
 
-        for (int i = 0; i < args.length; i++) {
-            if (args[i].equals("-n") && i + 1 < args.length) {
-                numProblems = Integer.parseInt(args[++i]);
-            } else if (args[i].equals("-r") && i + 1 < args.length) {
-                range = Integer.parseInt(args[++i]);
-            } else if (args[i].equals("-e") && i + 1 < args.length) {
-                exerciseFile = args[++i];
-            } else if (args[i].equals("-a") && i + 1 < args.length) {
-                answerFile = args[++i];
-            }
-        }
-
-        if (exerciseFile != null && answerFile != null) {
-            grade(exerciseFile, answerFile);
+        if (opts.exerciseFile != null && opts.answerFile != null) {
+            grade(opts.exerciseFile, opts.answerFile, opts.gradeThreads, opts.useKey, opts.trustKey);
             return;
         }
 
-        if (range == -1) {
+        if (opts.range == -1) {
             System.err.println("Error: -r parameter is required for generation mode.");
             System.err.println("Usage:");
-            System.err.println("  java ArithmeticGenerator -n <num> -r <range>");
-            System.err.println("  java ArithmeticGenerator -e <exercises.txt> -a <answers.txt>");
+            System.err.println("  java ArithmeticGenerator -n <num> -r <range> [-t <threads>] [--seed <seed>] [--pool | --adaptive] [--offheap] [--stats] [--jmx] [--key] [--bank] [--flush <bytes>] [-z] [-o <dir>]");
+            System.err.println("  java ArithmeticGenerator -e <exercises.txt> -a <answers.txt> [-t <threads>] [--cache | --trust]");
+            return;
+        }
+        if (opts.numProblems > CanonicalSet.MAX_SIZE) {
+            System.err.println("Error: -n can be at most " + CanonicalSet.MAX_SIZE + " (the dedupe set's capacity).");
+            return;
+        }
+        if (opts.threads < 1) {
+            System.err.println("Error: -t must be a positive integer.");
+            return;
+        }
+        if (opts.flushBytes < 1) {
+            System.err.println("Error: --flush must be a positive integer.");
             return;
         }
 
-        generate(numProblems, range);
+        generate(opts);
     }
 
     static void generate(int n, int r) {
+        generate(n, r, 1);
+    }
+
+    static void generate(int n, int r, int threads) {
+        Options opts = new Options();
+        opts.numProblems = n;
+        opts.range = r;
+        opts.threads = threads;
+        generate(opts);
+    }
+
+    static void generate(Options opts) {
+        int n = opts.numProblems;
+        long seed = opts.seedOrRandom();
+        List<Fraction> leaves = buildLeaves(opts.range);
+        int count = 0;
+        GenerationStats stats = null;
+        long start = System.nanoTime();
+
+        // Problems stream through a bounded queue to the files as they are accepted
+        try (ProblemSink sink = new QueuedSink(outputSink(opts), QueuedSink.CAPACITY)) {
+            // Small ranges: count the space exactly and sample it once n gets close to its size,
+            // instead of retrying random trees against an almost full dedupe set. The count is
+            // skipped when n is tiny next to the upper bound (the space is roughly half of it).
+            Enumerator space = Enumerator.build(leaves, Enumerator.LIMIT);
+            if (space != null && 8L * n >= space.upperBound() && 2L * n >= space.count()) {
+                for (Problem p : space.sample(n, new SplittableRandom(GenerationEngine.streamSeed(seed, -1)))) {
+                    sink.accept(p);
+                    count++;
+                }
+                if (count < n) {
+                    System.err.println("Warning: Only " + space.count() + " unique problems exist for -r " + opts.range
+                            + " (target: " + n + ").");
+                }
+            } else {
+                GenerationEngine engine = new GenerationEngine(leaves, seed, opts.threads, opts.usePool, opts.offHeap,
+                        opts.adaptive);
+                stats = engine.stats();
+                if (opts.jmx) stats.register();
+                count = engine.run(n, sink);
+                if (count < n) {
+                    System.err.println("Warning: Generated only " + count + " unique problems (target: " + n + ").");
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        String suffix = opts.gzip ? ".gz" : "";
+        System.out.println("Generated " + count + " problems to Exercises.txt" + suffix + " and Answers.txt" + suffix);
+        if (stats != null) stats.commitSummary(System.nanoTime() - start);
+        if (opts.stats) {
+            if (stats != null) {
+                stats.print(System.err);
+            } else {
+                System.err.println("Sampled the enumerated problem space: no candidates were drawn or rejected.");
+            }
+        }
+    }
+
+    private static ProblemSink outputSink(Options opts) throws IOException {
+        ProblemSink files = new FileProblemSink(opts.outputDir, opts.writeKey, opts.flushBytes, opts.gzip, opts.gradeThreads);
+        if (!opts.writeBank) return files;
+        return ProblemSink.both(files, new Bank.Writer(opts.outputDir.resolve("Exercises.bank"), opts.numProblems, opts.flushBytes));
+    }
+
+    static List<Fraction> buildLeaves(int r) {
         List<Fraction> leaves = new ArrayList<>();
         // Natural numbers
         for (int i = 0; i < r; i++) {
@@ -62,45 +126,12 @@ public class ArithmeticGenerator {
                 }
             }
         }
-
-        Set<String> uniqueCanonicals = new HashSet<>();
-        List<Expr> problems = new ArrayList<>();
-        Random rand = new Random();
-        int attempts = 0;
-        final int MAX_ATTEMPTS = 1000000; // For 10k, safe
-
-        while (problems.size() < n && attempts < MAX_ATTEMPTS) {
-            attempts++;
-            Expr expr = generateExpr(3, leaves, rand);
-            if (expr.isValid()) {
-                String can = expr.getCanonical();
-                if (!uniqueCanonicals.contains(can)) {
-                    uniqueCanonicals.add(can);
-                    problems.add(expr);
-                }
-            }
-        }
-
-        if (problems.size() < n) {
-            System.err.println("Warning: Generated only " + problems.size() + " unique problems (target: " + n + ").");
-        }
-
-        try (PrintWriter exerWriter = new PrintWriter(new FileWriter("Exercises.txt"));
-             PrintWriter ansWriter = new PrintWriter(new FileWriter("Answers.txt"))) {
-            for (int i = 0; i < problems.size(); i++) {
-                Expr e = problems.get(i);
-                exerWriter.println((i + 1) + ". " + e.toInfix() + " =");
-                ansWriter.println((i + 1) + ". " + e.eval().toString());
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        System.out.println("Generated " + problems.size() + " problems to Exercises.txt and Answers.txt");
+        return leaves;
     }
 
-    private static Expr generateExpr(int rem, List<Fraction> leaves, Random rand) {
+    static Expr generateExpr(int rem, List<Leaf> leaves, RandomGenerator rand) {
         if (rem == 0 || rand.nextDouble() < 0.4) {
-            return new Leaf(leaves.get(rand.nextInt(leaves.size())));
+            return leaves.get(rand.nextInt(leaves.size()));
         }
         String op = OPS[rand.nextInt(OPS.length)];
         int leftRem = rand.nextInt(rem);
@@ -111,147 +142,98 @@ public class ArithmeticGenerator {
     }
 
     static void grade(String exerFile, String ansFile) {
-        try {
-            List<String> exerLines = Files.readAllLines(Paths.get(exerFile));
-            List<String> ansLines = Files.readAllLines(Paths.get(ansFile));
-            List<Integer> correct = new ArrayList<>();
-            List<Integer> wrong = new ArrayList<>();
-
-            for (int i = 0; i < Math.min(exerLines.size(), ansLines.size()); i++) {
-                String exerLine = exerLines.get(i).trim();
-                String ansLine = ansLines.get(i).trim();
-
-                // Parse exercise: "1. expr ="
-                String[] exerParts = exerLine.split("\\.", 2);
-                if (exerParts.length < 2) continue;
-                String[] exprSplit = exerParts[1].trim().split("=", 2);
-                if (exprSplit.length < 1) continue;
-                String exprStr = exprSplit[0].trim();
+        grade(exerFile, ansFile, Runtime.getRuntime().availableProcessors());
+    }
 
-                // Parse answer: "1. ans"
-                String[] ansParts = ansLine.split("\\.", 2);
-                if (ansParts.length < 2) continue;
-                String ansStr = ansParts[1].trim();
+    static void grade(String exerFile, String ansFile, int threads) {
+        grade(exerFile, ansFile, threads, false);
+    }
 
-                Fraction expected = Fraction.parse(ansStr);
-                try {
-                    Parser parser = new Parser(exprStr);
-                    Expr expr = parser.parse();
-                    Fraction computed = expr.eval();
-                    if (computed.equals(expected)) {
-                        correct.add(i + 1);
-                    } else {
-                        wrong.add(i + 1);
-                    }
-                } catch (Exception e) {
-                    wrong.add(i + 1);
-                }
-            }
+    static void grade(String exerFile, String ansFile, int threads, boolean useKey) {
+        grade(exerFile, ansFile, threads, useKey, false);
+    }
 
-            try (PrintWriter gradeWriter = new PrintWriter(new FileWriter("Grade.txt"))) {
-                String correctStr = correct.isEmpty() ? "" : correct.stream().map(String::valueOf).reduce((a, b) -> a + ", " + b).get();
-                String wrongStr = wrong.isEmpty() ? "" : wrong.stream().map(String::valueOf).reduce((a, b) -> a + ", " + b).get();
-                gradeWriter.println("Correct: " + correct.size() + " (" + correctStr + ")");
-                gradeWriter.println("Wrong: " + wrong.size() + " (" + wrongStr + ")");
-            }
+    // With useKey the values are cached in <exercises>.key, so a re-grade only evaluates changed
+    // lines; with trustKey a complete key (e.g. from generate --key) replaces the exercises entirely.
+    // Either file may be gzip (.gz), e.g. from generate -z.
+    static void grade(String exerFile, String ansFile, int threads, boolean useKey, boolean trustKey) {
+        try {
+            Path exer = Paths.get(exerFile);
+            Path key = useKey || trustKey ? AnswerKey.sidecar(exer) : null;
+            new Grader(threads, key, trustKey).grade(exer, Paths.get(ansFile)).write(Paths.get("Grade.txt"));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    // Inner Parser class
+    // Recursive-descent parser over Lexer tokens; all four operators are left-associative,
+    // matching how Binary.toInfix prints them. Instances are reusable, one per thread via local().
     static class Parser {
-        private String s;
-        private int pos;
+        private static final ThreadLocal<Parser> LOCAL = ThreadLocal.withInitial(Parser::new);
+        private final Lexer lex = new Lexer();
+
+        Parser() {
+        }
 
-        public Parser(String input) {
-            this.s = input;
-            this.pos = 0;
+        public Parser(CharSequence input) {
+            reset(input);
+        }
+
+        static Parser local() {
+            return LOCAL.get();
+        }
+
+        Parser reset(CharSequence input) {
+            lex.reset(input, 0, input.length());
+            return this;
         }
 
         public Expr parse() {
-            return parseAdd();
+            Expr e = parseAdd();
+            if (lex.token() != Lexer.END) throw new RuntimeException("Unexpected trailing input");
+            return e;
         }
 
         private Expr parseAdd() {
             Expr e = parseMul();
-            while (true) {
-                String op = peekNextOp();
-                if (op == null || (!op.equals("+") && !op.equals("-"))) break;
-                consumeOp(op);
-                Expr right = parseMul();
-                e = new Binary(op, e, right);
+            while (lex.token() == '+' || lex.token() == '-') {
+                String op = opName(lex.token());
+                lex.next();
+                e = new Binary(op, e, parseMul());
             }
             return e;
         }
 
         private Expr parseMul() {
             Expr e = parseAtom();
-            while (true) {
-                String op = peekNextOp();
-                if (op == null || (!op.equals("*") && !op.equals("/"))) break;
-                consumeOp(op);
-                Expr right = parseMul();
-                e = new Binary(op, e, right);
+            while (lex.token() == '*' || lex.token() == '/') {
+                String op = opName(lex.token());
+                lex.next();
+                e = new Binary(op, e, parseAtom());
             }
             return e;
         }
 
         private Expr parseAtom() {
-            skipSpaces();
-            if (pos >= s.length()) throw new RuntimeException("Unexpected end");
-            if (s.charAt(pos) == '(') {
-                pos++; // consume (
+            if (lex.token() == '(') {
+                lex.next();
                 Expr e = parseAdd();
-                skipSpaces();
-                if (pos < s.length() && s.charAt(pos) == ')') {
-                    pos++; // consume )
-                } else {
-                    throw new RuntimeException("Missing )");
-                }
+                if (lex.token() != ')') throw new RuntimeException("Missing )");
+                lex.next();
                 return e;
-            } else {
-                String numStr = parseNumberStr();
-                return new Leaf(Fraction.parse(numStr));
             }
-        }
-
-        private String peekNextOp() {
-            skipSpaces();
-            if (pos >= s.length()) return null;
-            char ch = s.charAt(pos);
-            if (ch == '+' || ch == '-' || ch == '*' || ch == '/') {
-                return String.valueOf(ch);
+            if (lex.token() != Lexer.NUMBER) {
+                throw new RuntimeException(lex.token() == Lexer.END ? "Unexpected end" : "Expected number");
             }
-            return null;
+            Fraction value = lex.big
+                    ? Fraction.parse(lex.source(), lex.start, lex.tokenEnd)
+                    : new Fraction(lex.num, lex.den);
+            lex.next();
+            return new Leaf(value);
         }
 
-        private void consumeOp(String op) {
-            skipSpaces();
-            if (pos < s.length() && s.charAt(pos) == op.charAt(0)) {
-                pos++;
-            } else {
-                throw new RuntimeException("Expected op: " + op);
-            }
-        }
-
-        private void skipSpaces() {
-            while (pos < s.length() && s.charAt(pos) == ' ') pos++;
-        }
-
-        private String parseNumberStr() {
-            skipSpaces();
-            StringBuilder sb = new StringBuilder();
-            while (pos < s.length()) {
-                char ch = s.charAt(pos);
-                if (ch == ' ' || ch == ')' || (ch == '+' || ch == '-' || ch == '*' || ch == '/')) {
-                    break;
-                }
-                sb.append(ch);
-                pos++;
-            }
-            if (sb.length() == 0) throw new RuntimeException("Expected number");
-            return sb.toString();
+        private static String opName(int token) {
+            return OPS["+-*/".indexOf(token)];
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.gdut;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Random-access problem bank, written by the generator with --bank:
+//   header  [magic int][version short][flags short][count][capacity][slots][dataStart][dataLength]
+//   index   capacity x [data offset][canonical key][num][den]   (den == 0: value needs BigInteger)
+//   table   slots x [canonical key][problem number]            (open addressing, key 0 = empty)
+//   data    the infix text of every problem, back to back
+// Every section size follows from the capacity (-n), so the writer streams in one pass and a
+// reader can fetch problem k in O(1) and look up a canonical form in O(1) expected probes,
+// touching only the pages it needs.
+public class Bank {
+    static final int MAGIC = 0x41474231;  // "AGB1"
+    static final short VERSION = 1;
+    static final int HEADER = 48, INDEX_RECORD = 32, SLOT = 16;
+
+    private final MappedFile file;
+    private final long count, capacity, slots, dataStart, dataLength;
+
+    public Bank(Path path) throws IOException {
+        file = new MappedFile(path);
+        if (file.size() < HEADER || file.longAt(0) >>> 32 != MAGIC || (short) (file.longAt(0) >>> 16) != VERSION) {
+            throw new IOException("Not a problem bank: " + path);
+        }
+        count = file.longAt(8);
+        capacity = file.longAt(16);
+        slots = file.longAt(24);
+        dataStart = file.longAt(32);
+        dataLength = file.longAt(40);
+        if (dataStart + dataLength > file.size()) throw new IOException("Truncated problem bank: " + path);
+    }
+
+    public long size() {
+        return count;
+    }
+
+    // Problem k, 0-based
+    public Problem get(long k) {
+        if (k < 0 || k >= count) throw new IndexOutOfBoundsException("Problem " + k + " of " + count);
+        long rec = HEADER + k * INDEX_RECORD;
+        Expr expr = ArithmeticGenerator.Parser.local().reset(infix(k)).parse();
+        long num = file.longAt(rec + 16), den = file.longAt(rec + 24);
+        return new Problem(expr, den != 0 ? new Fraction(num, den) : expr.eval());
+    }
+
+    // Problems [from, to)
+    public List<Problem> range(long from, long to) {
+        List<Problem> page = new ArrayList<>((int) Math.max(0, to - from));
+        for (long k = from; k < to; k++) page.add(get(k));
+        return page;
+    }
+
+    // A view of problem k's infix text inside the mapping
+    CharSequence infix(long k) {
+        long rec = HEADER + k * INDEX_RECORD;
+        long from = file.longAt(rec);
+        long to = k + 1 < count ? file.longAt(rec + INDEX_RECORD) : dataLength;
+        return new MappedFile.Slice(file).set(dataStart + from, dataStart + to);
+    }
+
+    // Index of the problem with the same canonical form as expr, or -1
+    public long find(Expr expr) {
+        long key = expr.key();
+        String canonical = null;
+        long tableStart = HEADER + capacity * INDEX_RECORD;
+        for (long slot = slotOf(key, slots); ; slot = (slot + 1) & (slots - 1)) {
+            long k = file.longAt(tableStart + slot * SLOT);
+            if (k == 0) return -1;
+            if (k == key) {
+                long index = file.longAt(tableStart + slot * SLOT + 8);
+                // Keys are hashes: confirm on the canonical text
+                if (canonical == null) canonical = expr.getCanonical();
+                if (get(index).expr.getCanonical().equals(canonical)) return index;
+            }
+        }
+    }
+
+    private static long slotOf(long key, long slots) {
+        return (key * 0x9E3779B97F4A7C15L >>> 1) & (slots - 1);
+    }
+
+    // Streams problems into a bank sized for at most capacity problems. The index and data
+    // go out through sequential buffers; the table is a writable mapping, so inserts are
+    // plain memory stores.
+    static class Writer extends ProblemSink {
+        private static final int SEGMENT_BITS = 30;
+
+        private final FileChannel ch;
+        private final long capacity, slots, tableStart, dataStart;
+        private final MappedByteBuffer[] table;
+        private final ByteBuffer index = ByteBuffer.allocate(4096 * INDEX_RECORD);
+        private final OutputBuffer data;
+        private long count, indexed;
+
+        Writer(Path path, long capacity, int flushBytes) throws IOException {
+            this.capacity = capacity;
+            this.slots = Long.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;  // load factor <= 0.5
+            this.tableStart = HEADER + capacity * INDEX_RECORD;
+            this.dataStart = tableStart + slots * SLOT;
+            this.ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            long tableBytes = slots * SLOT;
+            this.table = new MappedByteBuffer[(int) ((tableBytes + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+            for (int i = 0; i < table.length; i++) {
+                long off = (long) i << SEGMENT_BITS;
+                table[i] = ch.map(FileChannel.MapMode.READ_WRITE, tableStart + off,
+                        Math.min(1L << SEGMENT_BITS, tableBytes - off));
+            }
+            this.data = new OutputBuffer(ch, dataStart, flushBytes);
+        }
+
+        @Override
+        public void accept(Problem p) throws IOException {
+            if (count == capacity) throw new IllegalStateException("Bank is full: " + capacity + " problems");
+            long key = p.expr.key();
+            if (!index.hasRemaining()) flushIndex();
+            index.putLong(data.size()).putLong(key);
+            if (p.value.isBig()) {
+                index.putLong(0).putLong(0);
+            } else {
+                index.putLong(p.value.getNumerator()).putLong(p.value.getDenominator());
+            }
+            p.expr.writeInfix(data);
+
+            long slot = slotOf(key, slots);
+            while (tableLong(slot * SLOT) != 0) slot = (slot + 1) & (slots - 1);
+            MappedByteBuffer seg = table[(int) ((slot * SLOT) >>> SEGMENT_BITS)];
+            int at = (int) ((slot * SLOT) & ((1L << SEGMENT_BITS) - 1));
+            seg.putLong(at, key);
+            seg.putLong(at + 8, count);
+            count++;
+        }
+
+        private long tableLong(long off) {
+            return table[(int) (off >>> SEGMENT_BITS)].getLong((int) (off & ((1L << SEGMENT_BITS) - 1)));
+        }
+
+        private void flushIndex() throws IOException {
+            index.flip();
+            long pos = HEADER + indexed * INDEX_RECORD;
+            indexed += index.remaining() / INDEX_RECORD;
+            while (index.hasRemaining()) pos += ch.write(index, pos);
+            index.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushIndex();
+                data.close();
+                for (MappedByteBuffer seg : table) seg.force();
+                ByteBuffer header = ByteBuffer.allocate(HEADER)
+                        .putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                        .putLong(count).putLong(capacity).putLong(slots).putLong(dataStart).putLong(data.size());
+                header.flip();
+                long pos = 0;
+                while (header.hasRemaining()) pos += ch.write(header, pos);
+            } finally {
+                ch.close();
+            }
+        }
+    }
+}
@@ -1,23 +1,29 @@
 package com.gdut;
 
+import java.io.IOException;
+
 public class Binary extends Expr {
     private String op;
+    private char opCode;
     private Expr left;
     private Expr right;
+    private String canonical;
+    private long key;
 
     public Binary(String op, Expr left, Expr right) {
         this.op = op;
+        this.opCode = op.charAt(0);
         this.left = left;
         this.right = right;
     }
 
     private int getPrec() {
-        if (op.equals("+") || op.equals("-")) return 1;
+        if (opCode == '+' || opCode == '-') return 1;
         return 2;
     }
 
     private boolean isComm() {
-        return op.equals("+") || op.equals("*");
+        return opCode == '+' || opCode == '*';
     }
 
     @Override
@@ -30,10 +36,24 @@ public class Binary extends Expr {
         return needParen ? "(" + inner + ")" : inner;
     }
 
+    @Override
+    public void writeInfix(OutputBuffer out, int parentPrec, boolean isRightChild) throws IOException {
+        int myPrec = getPrec();
+        boolean needParen = (myPrec < parentPrec) || (myPrec == parentPrec && isRightChild);
+        if (needParen) out.put('(');
+        left.writeInfix(out, myPrec, false);
+        out.put(' ').put(opCode).put(' ');
+        right.writeInfix(out, myPrec, true);
+        if (needParen) out.put(')');
+    }
+
     @Override
     public String getCanonical() {
-        String leftCan = left.getCanonical();
-        String rightCan = right.getCanonical();
+        if (canonical == null) canonical = canonical(left.getCanonical(), right.getCanonical());
+        return canonical;
+    }
+
+    private String canonical(String leftCan, String rightCan) {
         String opStr = " " + op + " ";
         String s = "(" + leftCan + opStr + rightCan + ")";
         if (isComm()) {
@@ -43,10 +63,30 @@ public class Binary extends Expr {
         return s;
     }
 
+    @Override
+    public int depth() {
+        return 1 + Math.max(left.depth(), right.depth());
+    }
+
+    @Override
+    public int census(long[] operators, long[] operands) {
+        operators["+-*/".indexOf(opCode)]++;
+        return 1 + left.census(operators, operands) + right.census(operators, operands);
+    }
+
     @Override
     public Fraction eval() {
-        Fraction l = left.eval();
-        Fraction r = right.eval();
+        FractionStack st = FractionStack.local();
+        try {
+            evalInto(st, false);
+            return st.pop();
+        } catch (ArithmeticException overflow) {
+            return apply(left.eval(), right.eval());
+        }
+    }
+
+    // Fraction path, promoting to BigInteger; only used when the long kernel overflows
+    private Fraction apply(Fraction l, Fraction r) {
         switch (op) {
             case "+": return l.add(r);
             case "-": return l.subtract(r);
@@ -58,6 +98,14 @@ public class Binary extends Expr {
 
     @Override
     public boolean isValid() {
+        try {
+            return evalInto(FractionStack.local(), true);
+        } catch (ArithmeticException overflow) {
+            return isValidExact();
+        }
+    }
+
+    private boolean isValidExact() {
         if (!left.isValid() || !right.isValid()) return false;
         Fraction lVal = left.eval();
         Fraction rVal = right.eval();
@@ -70,4 +118,42 @@ public class Binary extends Expr {
         }
         return true;
     }
+
+    @Override
+    public boolean evalInto(FractionStack st, boolean validate) {
+        if (!left.evalInto(st, validate) || !right.evalInto(st, validate)) return false;
+        return st.apply(opCode, validate);
+    }
+
+    @Override
+    public boolean analyze(FractionStack st) {
+        if (!left.analyze(st) || !right.analyze(st) || !st.apply(opCode, true)) return false;
+        key();
+        return true;
+    }
+
+    // Commutative operands are swapped into key order; equal keys keep their order, which
+    // only matters for a 64-bit collision between two different subtrees
+    private boolean swapped() {
+        return isComm() && left.key() > right.key();
+    }
+
+    @Override
+    public long key() {
+        if (key == 0) {
+            boolean swap = swapped();
+            Expr first = swap ? right : left;
+            Expr second = swap ? left : right;
+            key = mix(mix(opCode, first.key()), second.key());
+        }
+        return key;
+    }
+
+    @Override
+    public void encodeCanonical(CanonicalSet.Encoding out) {
+        boolean swap = swapped();
+        out.put(opCode);
+        (swap ? right : left).encodeCanonical(out);
+        (swap ? left : right).encodeCanonical(out);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.gdut;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+// Multi-member gzip made of independently compressed blocks, like BGZF: every member's
+// header carries an 'A','G' extra subfield holding the member's total size, so a reader
+// can find all members without decompressing and inflate them in parallel. To any other
+// tool it is an ordinary .gz file; gzip files without the subfield are still read, just
+// sequentially.
+public class BlockGzip {
+    private static final int HEADER = 20, TRAILER = 8;
+    private static final int FEXTRA = 4;
+
+    static boolean isGzip(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    // One complete member for data[0, len)
+    static byte[] member(byte[] data, int len) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data, 0, len);
+            deflater.finish();
+            byte[] out = new byte[HEADER + len + (len >> 3) + 64 + TRAILER];
+            int n = HEADER;
+            while (!deflater.finished()) {
+                if (n == out.length - TRAILER) out = java.util.Arrays.copyOf(out, out.length * 2);
+                n += deflater.deflate(out, n, out.length - TRAILER - n);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, len);
+            putIntLE(out, n, (int) crc.getValue());
+            putIntLE(out, n + 4, len);
+            n += TRAILER;
+            byte[] header = {
+                    0x1f, (byte) 0x8b, 8, FEXTRA, 0, 0, 0, 0, 0, (byte) 255,  // deflate, FEXTRA, no mtime, unknown OS
+                    8, 0,                                                  // XLEN
+                    'A', 'G', 4, 0, 0, 0, 0, 0                             // subfield: member size
+            };
+            putIntLE(header, 16, n);
+            System.arraycopy(header, 0, out, 0, HEADER);
+            return java.util.Arrays.copyOf(out, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Decompresses gz into out, in parallel when every member carries its size
+    static void inflate(Path gz, Path out, int parallelism) throws IOException {
+        MappedFile in = new MappedFile(gz);
+        long[] members = memberOffsets(in);
+        if (members == null) {
+            try (InputStream is = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(gz), 1 << 16), 1 << 16)) {
+                Files.copy(is, out, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try (FileChannel ch = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+            int window = 2 * Math.max(1, parallelism) + 2;
+            int next = 0;
+            while (next < members.length - 1 || !inFlight.isEmpty()) {
+                while (next < members.length - 1 && inFlight.size() < window) {
+                    long from = members[next], to = members[++next];
+                    inFlight.add(pool.submit(() -> inflateMember(in, from, (int) (to - from))));
+                }
+                ByteBuffer block = ByteBuffer.wrap(inFlight.poll().get());
+                while (block.hasRemaining()) ch.write(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing " + gz, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException("Failed to decompress " + gz, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Start offsets of all members plus the file size, or null if some member has no size
+    private static long[] memberOffsets(MappedFile in) {
+        long[] offsets = new long[16];
+        int k = 0;
+        long pos = 0;
+        byte[] h = new byte[HEADER];
+        while (pos < in.size()) {
+            if (in.size() - pos < HEADER + TRAILER) return null;
+            in.read(pos, h, 0, HEADER);
+            if (h[0] != 0x1f || h[1] != (byte) 0x8b || h[2] != 8 || h[3] != FEXTRA
+                    || h[10] != 8 || h[11] != 0 || h[12] != 'A' || h[13] != 'G' || h[14] != 4 || h[15] != 0) {
+                return null;
+            }
+            long size = getIntLE(h, 16) & 0xffffffffL;
+            if (size < HEADER + TRAILER || pos + size > in.size()) return null;
+            if (k + 1 >= offsets.length) offsets = java.util.Arrays.copyOf(offsets, offsets.length * 2);
+            offsets[k++] = pos;
+            pos += size;
+        }
+        offsets[k++] = pos;
+        return java.util.Arrays.copyOf(offsets, k);
+    }
+
+    private static byte[] inflateMember(MappedFile in, long from, int size) throws IOException {
+        byte[] m = new byte[size];
+        in.read(from, m, 0, size);
+        int crc = getIntLE(m, size - 8), isize = getIntLE(m, size - 4);
+        byte[] data = new byte[isize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(m, HEADER, size - HEADER - TRAILER);
+            int n = 0;
+            while (n < isize && !inflater.finished()) {
+                int r = inflater.inflate(data, n, isize - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += r;
+            }
+            CRC32 check = new CRC32();
+            check.update(data, 0, n);
+            if (n != isize || (int) check.getValue() != crc) {
+                throw new IOException("Corrupt gzip member at offset " + from);
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt gzip member at offset " + from, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void putIntLE(byte[] b, int at, int v) {
+        b[at] = (byte) v;
+        b[at + 1] = (byte) (v >>> 8);
+        b[at + 2] = (byte) (v >>> 16);
+        b[at + 3] = (byte) (v >>> 24);
+    }
+
+    private static int getIntLE(byte[] b, int at) {
+        return (b[at] & 0xff) | (b[at + 1] & 0xff) << 8 | (b[at + 2] & 0xff) << 16 | (b[at + 3] & 0xff) << 24;
+    }
+
+    // Compresses blocks on a thread pool while writing finished members to the file in order;
+    // at most WINDOW blocks are in flight, so memory stays bounded
+    static class Writer implements Closeable {
+        private final FileChannel ch;
+        private final ExecutorService pool;
+        private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        private final int window;
+        private boolean empty = true;
+
+        Writer(Path file, int threads) throws IOException {
+            this.ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+                Thread t = new Thread(r, "gzip-block");
+                t.setDaemon(true);
+                return t;
+            });
+            this.window = 2 * Math.max(1, threads) + 2;
+        }
+
+        // Takes ownership of block
+        void write(byte[] block, int len) throws IOException {
+            empty = false;
+            inFlight.add(pool.submit(() -> member(block, len)));
+            if (inFlight.size() >= window) writeOldest();
+        }
+
+        private void writeOldest() throws IOException {
+            try {
+                ByteBuffer m = ByteBuffer.wrap(inFlight.poll().get());
+                while (m.hasRemaining()) ch.write(m);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while compressing", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Compression failed", e.getCause());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // A zero-byte file is not valid gzip, so no data still gets one (empty) member,
+                // like the EOF block that ends every BGZF file
+                if (empty) write(new byte[0], 0);
+                while (!inFlight.isEmpty()) writeOldest();
+            } finally {
+                pool.shutdownNow();
+                ch.close();
+            }
+        }
+    }
+}
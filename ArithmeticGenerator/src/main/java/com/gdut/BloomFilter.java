@@ -0,0 +1,43 @@
+package com.gdut;
+
+// Blocked Bloom filter over 64-bit keys that are already well-mixed hashes (Expr.key()).
+// The high bits of a key select one 64-byte block (8 longs, one cache line) and a remix
+// of the key sets PROBES bits inside it, so a query costs one cache miss however large
+// the filter gets. At 12 bits per key about 1% of new keys pass as "maybe present".
+// No false negatives. Not thread-safe.
+public class BloomFilter {
+    private static final int PROBES = 6;
+    private static final int BLOCK_WORDS = 8;
+
+    private final long[] bits;
+    private final int blockMask;
+
+    public BloomFilter(long expected, int bitsPerKey) {
+        long blocks = Math.max(1, expected * bitsPerKey / (64 * BLOCK_WORDS));
+        int pow = (int) Math.min(1L << 27, Long.highestOneBit(blocks - 1) << 1);
+        this.bits = new long[Math.max(1, pow) * BLOCK_WORDS];
+        this.blockMask = Math.max(1, pow) - 1;
+    }
+
+    public void put(long key) {
+        int block = ((int) (key >>> 32) & blockMask) * BLOCK_WORDS;
+        long h = key * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < PROBES; i++, h >>>= 9) {
+            bits[block + (int) (h >>> 6 & 7)] |= 1L << h;
+        }
+    }
+
+    // False means key was never put
+    public boolean mightContain(long key) {
+        int block = ((int) (key >>> 32) & blockMask) * BLOCK_WORDS;
+        long h = key * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < PROBES; i++, h >>>= 9) {
+            if ((bits[block + (int) (h >>> 6 & 7)] & 1L << h) == 0) return false;
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return 8L * bits.length;
+    }
+}
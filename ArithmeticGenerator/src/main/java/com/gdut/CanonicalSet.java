@@ -0,0 +1,269 @@
+package com.gdut;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Dedupe set over Expr canonical forms. Slots hold the 64-bit Expr.key() in an
+// open-addressing table; a key match is verified against the packed canonical encoding
+// kept in a paged byte arena, so a hash collision can never drop a genuinely new problem.
+// 16 bytes per table slot plus the encoding (typically 15-25 bytes) instead of a String
+// plus a HashMap node. The table tops out at MAX_CAPACITY slots, i.e. MAX_SIZE (about 644M)
+// entries; refs are 64-bit, so the arena never runs out first. A blocked Bloom filter
+// in front answers "definitely new" from one cache line, so contains() on a new form never
+// encodes it or probes the table. With offHeap both the slot table and the arena pages are
+// direct buffers, so only the Bloom filter (about 1.5 bytes per slot) stays on the Java heap.
+// Not thread-safe.
+public class CanonicalSet {
+    private static final int PAGE_BITS = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int FILTER_BITS_PER_KEY = 12;
+    static final int MAX_CAPACITY = 1 << 30;
+    static final int MAX_SIZE = (int) (MAX_CAPACITY * (double) LOAD_FACTOR);
+
+    private Slots slots;
+    private int size;
+    private BloomFilter filter;
+    private final boolean offHeap;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private int pageUsed = PAGE_SIZE;
+    private final Encoding scratch = new Encoding();
+
+    public CanonicalSet() {
+        this(1024);
+    }
+
+    public CanonicalSet(int expected) {
+        this(expected, false);
+    }
+
+    public CanonicalSet(int expected, boolean offHeap) {
+        if (expected > MAX_SIZE) {
+            throw new IllegalArgumentException("A CanonicalSet holds at most " + MAX_SIZE + " entries, not " + expected);
+        }
+        int cap = Integer.highestOneBit(Math.max(16, (int) Math.min(MAX_CAPACITY, expected / LOAD_FACTOR)) - 1) << 1;
+        this.offHeap = offHeap;
+        slots = Slots.allocate(cap, offHeap);
+        filter = new BloomFilter((long) (cap * LOAD_FACTOR), FILTER_BITS_PER_KEY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Expr expr) {
+        long key = expr.key();
+        if (!filter.mightContain(key)) return false;
+        scratch.clear();
+        expr.encodeCanonical(scratch);
+        Slots t = slots;
+        int mask = t.capacity() - 1;
+        for (int i = slot(key, mask); t.key(i) != 0; i = (i + 1) & mask) {
+            if (t.key(i) == key && sameEncoding(t.ref(i), scratch)) return true;
+        }
+        return false;
+    }
+
+    // Adds expr's canonical form; false if an equal one is already present
+    public boolean add(Expr expr) {
+        long key = expr.key();
+        scratch.clear();
+        expr.encodeCanonical(scratch);
+        Slots t = slots;
+        int mask = t.capacity() - 1;
+        int i = slot(key, mask);
+        if (filter.mightContain(key)) {
+            for (; t.key(i) != 0; i = (i + 1) & mask) {
+                if (t.key(i) == key && sameEncoding(t.ref(i), scratch)) return false;
+            }
+        } else {
+            while (t.key(i) != 0) i = (i + 1) & mask;
+        }
+        if (size == MAX_SIZE) throw new IllegalStateException("CanonicalSet full: " + MAX_SIZE + " entries");
+        t.set(i, key, store(scratch));
+        filter.put(key);
+        if (++size > t.capacity() * LOAD_FACTOR && t.capacity() < MAX_CAPACITY) grow();
+        return true;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void grow() {
+        Slots old = slots;
+        slots = Slots.allocate(old.capacity() * 2, offHeap);
+        filter = new BloomFilter((long) (slots.capacity() * LOAD_FACTOR), FILTER_BITS_PER_KEY);
+        int mask = slots.capacity() - 1;
+        for (int j = 0; j < old.capacity(); j++) {
+            long key = old.key(j);
+            if (key == 0) continue;
+            filter.put(key);
+            int i = slot(key, mask);
+            while (slots.key(i) != 0) i = (i + 1) & mask;
+            slots.set(i, key, old.ref(j));
+        }
+    }
+
+    long tableHeapBytes() {
+        return slots instanceof HeapSlots ? 16L * slots.capacity() : 0;
+    }
+
+    // The open-addressing table: per slot the 64-bit key (0 marks an empty slot) and the
+    // arena position of its encoding, page << PAGE_BITS | offset
+    abstract static class Slots {
+        abstract int capacity();
+
+        abstract long key(int i);
+
+        abstract long ref(int i);
+
+        abstract void set(int i, long key, long ref);
+
+        static Slots allocate(int capacity, boolean offHeap) {
+            return offHeap ? new DirectSlots(capacity) : new HeapSlots(capacity);
+        }
+    }
+
+    private static final class HeapSlots extends Slots {
+        private final long[] keys;
+        private final long[] refs;
+
+        HeapSlots(int capacity) {
+            keys = new long[capacity];
+            refs = new long[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return keys.length;
+        }
+
+        @Override
+        long key(int i) {
+            return keys[i];
+        }
+
+        @Override
+        long ref(int i) {
+            return refs[i];
+        }
+
+        @Override
+        void set(int i, long key, long ref) {
+            keys[i] = key;
+            refs[i] = ref;
+        }
+    }
+
+    // Key and ref side by side (16 bytes per slot, one cache line access per probe) in direct
+    // buffers of up to 2^SLOT_PAGE_BITS slots, since one buffer cannot exceed 2 GB. Direct
+    // buffers start zeroed, i.e. empty.
+    private static final class DirectSlots extends Slots {
+        private static final int SLOT_PAGE_BITS = 22;
+
+        private final ByteBuffer[] pages;
+        private final int capacity;
+        private final int pageMask;
+
+        DirectSlots(int capacity) {
+            this.capacity = capacity;
+            int perPage = Math.min(capacity, 1 << SLOT_PAGE_BITS);
+            pageMask = perPage - 1;
+            pages = new ByteBuffer[capacity / perPage];
+            for (int p = 0; p < pages.length; p++) {
+                pages[p] = ByteBuffer.allocateDirect(16 * perPage).order(ByteOrder.nativeOrder());
+            }
+        }
+
+        @Override
+        int capacity() {
+            return capacity;
+        }
+
+        @Override
+        long key(int i) {
+            return pages[i >>> SLOT_PAGE_BITS].getLong((i & pageMask) << 4);
+        }
+
+        @Override
+        long ref(int i) {
+            return pages[i >>> SLOT_PAGE_BITS].getLong(((i & pageMask) << 4) + 8);
+        }
+
+        @Override
+        void set(int i, long key, long ref) {
+            ByteBuffer page = pages[i >>> SLOT_PAGE_BITS];
+            page.putLong((i & pageMask) << 4, key);
+            page.putLong(((i & pageMask) << 4) + 8, ref);
+        }
+    }
+
+    // Arena entries are [length][bytes] and never span a page
+    private long store(Encoding e) {
+        int need = e.len + 1;
+        if (e.len > 255) throw new IllegalArgumentException("Canonical encoding too long: " + e.len);
+        if (pageUsed + need > PAGE_SIZE) {
+            pages.add(offHeap ? ByteBuffer.allocateDirect(PAGE_SIZE) : ByteBuffer.allocate(PAGE_SIZE));
+            pageUsed = 0;
+        }
+        ByteBuffer page = pages.get(pages.size() - 1);
+        long ref = (long) (pages.size() - 1) << PAGE_BITS | pageUsed;
+        page.put(pageUsed, (byte) e.len);
+        page.put(pageUsed + 1, e.buf, 0, e.len);
+        pageUsed += need;
+        return ref;
+    }
+
+    // Runs on every key hit, i.e. on every duplicate, so it compares in place without
+    // allocating: a vectorized range compare on heap pages, absolute gets on direct ones
+    private boolean sameEncoding(long ref, Encoding e) {
+        ByteBuffer page = pages.get((int) (ref >>> PAGE_BITS));
+        int off = (int) (ref & (PAGE_SIZE - 1)) + 1;
+        if ((page.get(off - 1) & 0xFF) != e.len) return false;
+        if (page.hasArray()) {
+            int from = page.arrayOffset() + off;
+            return Arrays.equals(page.array(), from, from + e.len, e.buf, 0, e.len);
+        }
+        for (int j = 0; j < e.len; j++) {
+            if (page.get(off + j) != e.buf[j]) return false;
+        }
+        return true;
+    }
+
+    // Reusable byte buffer for Expr.encodeCanonical
+    public static class Encoding {
+        static final int LEAF = 1;
+        static final int BIG_LEAF = 2;
+
+        private byte[] buf = new byte[64];
+        private int len;
+
+        void clear() {
+            len = 0;
+        }
+
+        void put(int b) {
+            if (len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+            buf[len++] = (byte) b;
+        }
+
+        // Zigzag varint: small magnitudes take one byte
+        void putVarLong(long v) {
+            long z = (v << 1) ^ (v >> 63);
+            while ((z & ~0x7FL) != 0) {
+                put((int) (z & 0x7F) | 0x80);
+                z >>>= 7;
+            }
+            put((int) z);
+        }
+
+        void putBytes(byte[] bytes) {
+            putVarLong(bytes.length);
+            for (byte b : bytes) put(b);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.gdut;
+
+// Grading-only evaluator: computes the value of an exercise in one operator-precedence
+// (shunting-yard) pass over Lexer tokens, on the primitive FractionStack plus a char
+// operator stack, without building Expr trees. Operators are left-associative, exactly
+// as in ArithmeticGenerator.Parser. Expressions that overflow the long kernel or carry
+// BigInteger literals are re-evaluated through the Parser.
+public class DirectEvaluator {
+    private static final ThreadLocal<DirectEvaluator> LOCAL = ThreadLocal.withInitial(DirectEvaluator::new);
+
+    private final Lexer lex = new Lexer();
+    private final FractionStack values = new FractionStack();
+    private char[] ops = new char[16];
+    private int opCount;
+
+    static DirectEvaluator local() {
+        return LOCAL.get();
+    }
+
+    public Fraction evaluate(CharSequence s) {
+        try {
+            return evaluateLong(s);
+        } catch (ArithmeticException overflow) {
+            return ArithmeticGenerator.Parser.local().reset(s).parse().eval();
+        }
+    }
+
+    private Fraction evaluateLong(CharSequence s) {
+        values.clear();
+        opCount = 0;
+        boolean operand = true;  // expecting a number or '('
+        for (int t = lex.reset(s, 0, s.length()).token(); t != Lexer.END; t = lex.next()) {
+            if (operand) {
+                if (t == Lexer.NUMBER) {
+                    if (lex.big) throw new ArithmeticException("BigInteger literal");
+                    if (lex.den == 0) throw new IllegalArgumentException("Denominator cannot be zero");
+                    long g = Fraction.gcd(lex.num, lex.den);
+                    values.push(lex.num / g, lex.den / g);
+                    operand = false;
+                } else if (t == '(') {
+                    pushOp('(');
+                } else {
+                    throw new RuntimeException("Expected number");
+                }
+            } else if (t == ')') {
+                while (opCount > 0 && ops[opCount - 1] != '(') values.apply(ops[--opCount], false);
+                if (opCount == 0) throw new RuntimeException("Unbalanced )");
+                opCount--;
+            } else if (t == '+' || t == '-' || t == '*' || t == '/') {
+                // Left-associative: reduce everything of equal or higher precedence first
+                while (opCount > 0 && ops[opCount - 1] != '(' && prec(ops[opCount - 1]) >= prec(t)) {
+                    values.apply(ops[--opCount], false);
+                }
+                pushOp((char) t);
+                operand = true;
+            } else {
+                throw new RuntimeException("Expected operator");
+            }
+        }
+        if (operand) throw new RuntimeException("Unexpected end");
+        while (opCount > 0) {
+            char op = ops[--opCount];
+            if (op == '(') throw new RuntimeException("Missing )");
+            values.apply(op, false);
+        }
+        return values.pop();
+    }
+
+    private void pushOp(char op) {
+        if (opCount == ops.length) ops = java.util.Arrays.copyOf(ops, opCount * 2);
+        ops[opCount++] = op;
+    }
+
+    private static int prec(int op) {
+        return op == '+' || op == '-' ? 1 : 2;
+    }
+}
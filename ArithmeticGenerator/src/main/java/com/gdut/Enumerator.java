@@ -0,0 +1,134 @@
+package com.gdut;
+
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+// Exhaustive walk of the canonical problem space for small ranges: every valid expression
+// with up to MAX_OPS operators over the distinct leaf values, exactly one representative
+// per canonical form. Levels below the top are materialized; the top level is only ever
+// walked, once to count it and once to emit the sampled problems.
+public class Enumerator {
+    static final int MAX_OPS = 3;
+    // Top-level candidate checks we are willing to spend on a walk (~1s)
+    static final long LIMIT = 20000000L;
+    private static final char[] OPS = {'+', '-', '*', '/'};
+
+    private final List<List<Problem>> levels = new ArrayList<>();
+    private final FractionStack st = new FractionStack();
+    private long count = -1;
+
+    private Enumerator() {
+    }
+
+    // Null when the space is too large to walk within LIMIT checks
+    static Enumerator build(List<Fraction> leaves, long limit) {
+        Enumerator e = new Enumerator();
+        List<Problem> level0 = new ArrayList<>();
+        for (Fraction f : new LinkedHashSet<>(leaves)) {
+            level0.add(new Problem(new Leaf(f), f));
+        }
+        e.levels.add(level0);
+        for (int k = 1; k < MAX_OPS; k++) {
+            if (e.checksBound(k, MAX_OPS) > limit) return null;
+            e.levels.add(e.buildLevel(k));
+        }
+        if (e.checksBound(MAX_OPS, MAX_OPS) > limit) return null;
+        return e;
+    }
+
+    // Upper bound on the checks the top level needs, assuming levels >= known are full
+    private long checksBound(int known, int top) {
+        long[] sizes = new long[top];
+        for (int k = 0; k < top; k++) {
+            if (k < known) {
+                sizes[k] = levels.get(k).size();
+            } else {
+                for (int a = 0; a < k; a++) sizes[k] = satAdd(sizes[k], pairs(sizes[a], sizes[k - 1 - a]));
+            }
+        }
+        long checks = 0;
+        for (int a = 0; a < top; a++) checks = satAdd(checks, pairs(sizes[a], sizes[top - 1 - a]));
+        return checks;
+    }
+
+    // Large ranges overflow the bound, so it saturates at Long.MAX_VALUE
+    private static long pairs(long l, long r) {
+        long p = Math.multiplyHigh(l, r) == 0 ? l * r : Long.MAX_VALUE;
+        return p < 0 || p > Long.MAX_VALUE / OPS.length ? Long.MAX_VALUE : p * OPS.length;
+    }
+
+    private static long satAdd(long a, long b) {
+        long s = a + b;
+        return s < 0 ? Long.MAX_VALUE : s;
+    }
+
+    private List<Problem> buildLevel(int k) {
+        List<Problem> level = new ArrayList<>();
+        walk(k, level::add);
+        return level;
+    }
+
+    // Calls sink for every valid canonical representative with exactly k operators. For
+    // commutative operators only one operand order is visited (a <= b, and i <= j when
+    // both operands come from the same level), so no dedupe set is needed.
+    private void walk(int k, java.util.function.Consumer<Problem> sink) {
+        for (int a = 0; a < k; a++) {
+            int b = k - 1 - a;
+            List<Problem> lefts = levels.get(a);
+            List<Problem> rights = levels.get(b);
+            for (int i = 0; i < lefts.size(); i++) {
+                Problem l = lefts.get(i);
+                for (int j = 0; j < rights.size(); j++) {
+                    Problem r = rights.get(j);
+                    for (char op : OPS) {
+                        boolean comm = op == '+' || op == '*';
+                        if (comm && (a > b || (a == b && j < i))) continue;
+                        Fraction value = st.combine(op, l.value, r.value);
+                        if (value != null) {
+                            sink.accept(new Problem(new Binary(String.valueOf(op), l.expr, r.expr), value));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Cheap upper bound on count(): lower levels exactly, the top level by its checks
+    long upperBound() {
+        long bound = checksBound(MAX_OPS, MAX_OPS);
+        for (List<Problem> level : levels) bound += level.size();
+        return bound;
+    }
+
+    // Exact number of unique valid problems
+    long count() {
+        if (count < 0) {
+            long[] top = {0};
+            walk(MAX_OPS, p -> top[0]++);
+            count = top[0];
+            for (List<Problem> level : levels) count += level.size();
+        }
+        return count;
+    }
+
+    // min(n, count()) distinct problems chosen uniformly without replacement (selection
+    // sampling, Knuth 3.4.2 Algorithm S), returned in shuffled order
+    List<Problem> sample(int n, RandomGenerator rand) {
+        long total = count();
+        int want = (int) Math.min(n, total);
+        List<Problem> chosen = new ArrayList<>(want);
+        long[] seen = {0};
+        java.util.function.Consumer<Problem> select = p -> {
+            if (chosen.size() < want && rand.nextDouble() * (total - seen[0]) < want - chosen.size()) {
+                chosen.add(p);
+            }
+            seen[0]++;
+        };
+        for (List<Problem> level : levels) level.forEach(select);
+        walk(MAX_OPS, select);
+        for (int i = chosen.size() - 1; i > 0; i--) {
+            Collections.swap(chosen, i, rand.nextInt(i + 1));
+        }
+        return chosen;
+    }
+}
@@ -1,13 +1,53 @@
 package com.gdut;
 
+import java.io.IOException;
+
 public abstract class Expr {
     public abstract String toInfix(int parentPrec, boolean isRightChild);
+    // Same text as toInfix, appended to out without building Strings
+    public abstract void writeInfix(OutputBuffer out, int parentPrec, boolean isRightChild) throws IOException;
     public abstract String getCanonical();
     public abstract Fraction eval();
     public abstract boolean isValid();
 
+    // Pushes this tree's value onto st without allocating. With validate, stops at the
+    // first node that breaks a problem constraint and returns false.
+    public abstract boolean evalInto(FractionStack st, boolean validate);
+
+    // One bottom-up pass for generation: validates, pushes the value onto st and memoizes
+    // the canonical key on every node, so key() afterwards is O(1)
+    public abstract boolean analyze(FractionStack st);
+
+    // 64-bit structural hash of the canonical form (commutative operands ordered by key).
+    // Never 0. Equal canonical forms always give equal keys; the converse is verified by
+    // CanonicalSet against encodeCanonical.
+    public abstract long key();
+
+    // Packed prefix encoding of the canonical form, operands ordered as in key()
+    public abstract void encodeCanonical(CanonicalSet.Encoding out);
+
+    // Operator levels from the root to the deepest leaf; 0 for a leaf
+    public int depth() {
+        return 0;
+    }
+
+    // Adds this tree's operators (in "+-*/" order) and operands (by Leaf.operandClass) to
+    // the counts and returns the number of operators
+    public abstract int census(long[] operators, long[] operands);
+
+    static long mix(long h, long v) {
+        h ^= v * 0x9E3779B97F4A7C15L;
+        h = Long.rotateLeft(h, 31) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 29;
+        return h != 0 ? h : 1;
+    }
+
     // Default toInfix call
     public String toInfix() {
         return toInfix(0, false);
     }
+
+    public void writeInfix(OutputBuffer out) throws IOException {
+        writeInfix(out, 0, false);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.gdut;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+// Bottom-up pools of already-valid subexpressions by operator count, each with its value.
+// Candidates are composed from pool entries and only from operand pairs that satisfy the
+// - and / constraints (swapping the operands when that makes the pair valid), so nearly
+// every candidate is valid and generation cost follows n rather than the rejection rate.
+// Read-only once built; workers share one pool and bring their own FractionStack.
+public class ExprPool {
+    static final int CAPACITY = 1 << 14;
+    private static final double LEAF_PROB = 0.4;
+    private static final String[] OPS = {"+", "-", "*", "/"};
+
+    private final List<List<Problem>> levels = new ArrayList<>();
+
+    private ExprPool() {
+    }
+
+    // Level 0 holds every distinct leaf; levels 1..MAX_OPS-1 hold up to capacity distinct
+    // canonical forms sampled from compositions of the lower levels
+    static ExprPool build(List<Fraction> leaves, RandomGenerator rand, int capacity) {
+        ExprPool pool = new ExprPool();
+        List<Problem> level0 = new ArrayList<>();
+        for (Fraction f : new LinkedHashSet<>(leaves)) {
+            level0.add(new Problem(new Leaf(f), f));
+        }
+        pool.levels.add(level0);
+
+        FractionStack st = new FractionStack();
+        for (int k = 1; k < Enumerator.MAX_OPS; k++) {
+            List<Problem> level = new ArrayList<>();
+            CanonicalSet seen = new CanonicalSet(capacity);
+            for (long tries = 0; level.size() < capacity && tries < 8L * capacity; tries++) {
+                int a = rand.nextInt(k);
+                Problem p = pool.compose(OPS[rand.nextInt(OPS.length)], pool.pick(a, rand), pool.pick(k - 1 - a, rand), st);
+                if (p != null && seen.add(p.expr)) {
+                    level.add(p);
+                }
+            }
+            pool.levels.add(level);
+        }
+        return pool;
+    }
+
+    private Problem pick(int level, RandomGenerator rand) {
+        List<Problem> entries = levels.get(level);
+        return entries.get(rand.nextInt(entries.size()));
+    }
+
+    // l op r if valid, else r op l for the non-commutative operators, else null
+    private Problem compose(String op, Problem l, Problem r, FractionStack st) {
+        char c = op.charAt(0);
+        Fraction value = st.combine(c, l.value, r.value);
+        if (value != null) return new Problem(new Binary(op, l.expr, r.expr), value);
+        if (c == '-' || c == '/') {
+            value = st.combine(c, r.value, l.value);
+            if (value != null) return new Problem(new Binary(op, r.expr, l.expr), value);
+        }
+        return null;
+    }
+
+    // Subtree for an operator budget, with the same leaf probability as generateExpr
+    private Problem draw(int budget, RandomGenerator rand) {
+        if (budget == 0 || rand.nextDouble() < LEAF_PROB) return pick(0, rand);
+        return pick(1 + rand.nextInt(budget), rand);
+    }
+
+    // A valid candidate with up to MAX_OPS operators, or null in the rare case that no
+    // operator makes the drawn operands valid (e.g. two zeros under - and /)
+    Problem next(RandomGenerator rand, FractionStack st) {
+        int rem = Enumerator.MAX_OPS;
+        if (rand.nextDouble() < LEAF_PROB) return pick(0, rand);
+        int leftRem = rand.nextInt(rem);
+        Problem l = draw(leftRem, rand);
+        Problem r = draw(rem - 1 - leftRem, rand);
+        int first = rand.nextInt(OPS.length);
+        for (int i = 0; i < OPS.length; i++) {
+            Problem p = compose(OPS[(first + i) % OPS.length], l, r, st);
+            if (p != null) return p;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.gdut;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Writes Exercises.txt and Answers.txt line by line as problems arrive, and optionally
+// the Exercises.txt.key answer key (see AnswerKey) alongside them; without one, a key left
+// by an earlier run is deleted so it cannot be trusted for the new exercises. Lines are formatted
+// straight into OutputBuffers, which go to disk in flushBytes batches, or as gzip blocks
+// of flushBytes each into Exercises.txt.gz/Answers.txt.gz.
+public class FileProblemSink extends ProblemSink {
+    private final OutputBuffer exercises;
+    private final OutputBuffer answers;
+    private final AnswerKey.Writer keyWriter;
+    private long count;
+
+    public FileProblemSink(Path dir) throws IOException {
+        this(dir, false, OutputBuffer.DEFAULT_FLUSH, false, 1);
+    }
+
+    public FileProblemSink(Path dir, boolean writeKey, int flushBytes, boolean gzip, int threads) throws IOException {
+        String suffix = gzip ? ".gz" : "";
+        Path exerFile = dir.resolve("Exercises.txt" + suffix);
+        this.exercises = new OutputBuffer(exerFile, flushBytes, threads);
+        this.answers = new OutputBuffer(dir.resolve("Answers.txt" + suffix), flushBytes, threads);
+        this.keyWriter = writeKey ? new AnswerKey.Writer(AnswerKey.sidecar(exerFile), exerFile) : null;
+        if (!writeKey) Files.deleteIfExists(AnswerKey.sidecar(exerFile));
+    }
+
+    @Override
+    public void accept(Problem p) throws IOException {
+        count++;
+        exercises.putLong(count).put('.').put(' ');
+        exercises.startHash();
+        p.expr.writeInfix(exercises);
+        long fingerprint = exercises.endHash();
+        exercises.put(' ').put('=').newLine();
+        answers.putLong(count).put('.').put(' ');
+        p.value.writeTo(answers);
+        answers.newLine();
+        if (keyWriter != null) keyWriter.append(fingerprint, p.value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (AnswerKey.Writer key = keyWriter) {
+            try {
+                exercises.close();
+            } finally {
+                answers.close();
+            }
+            if (key != null) key.commit();
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.gdut;
 
-import java.util.Objects;
+import java.io.IOException;
+import java.math.BigInteger;
 
 public class Fraction {
     private long num;
     private long den;
+    // Only set when the reduced value does not fit in longs; num/den are then unused.
+    // Arithmetic stays on the long fast path and promotes here only on overflow.
+    private BigInteger bigNum;
+    private BigInteger bigDen;
 
     public Fraction(long num, long den) {
         if (den == 0) throw new IllegalArgumentException("Denominator cannot be zero");
+        if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+            initBig(BigInteger.valueOf(num), BigInteger.valueOf(den));
+            return;
+        }
         long g = gcd(Math.abs(num), Math.abs(den));
         this.num = num / g;
         this.den = den / g;
@@ -17,45 +26,130 @@ public class Fraction {
         }
     }
 
-    private static long gcd(long a, long b) {
-        while (b != 0) {
-            long t = b;
-            b = a % b;
-            a = t;
+    Fraction(BigInteger num, BigInteger den) {
+        if (den.signum() == 0) throw new IllegalArgumentException("Denominator cannot be zero");
+        initBig(num, den);
+    }
+
+    private void initBig(BigInteger n, BigInteger d) {
+        BigInteger g = n.gcd(d);
+        n = n.divide(g);
+        d = d.divide(g);
+        if (d.signum() < 0) {
+            n = n.negate();
+            d = d.negate();
         }
-        return a;
+        if (fitsLong(n) && fitsLong(d)) {
+            this.num = n.longValue();
+            this.den = d.longValue();
+        } else {
+            this.bigNum = n;
+            this.bigDen = d;
+        }
+    }
+
+    // Long.MIN_VALUE is kept out of the long representation so Math.abs/negate stay safe
+    private static boolean fitsLong(BigInteger x) {
+        return x.bitLength() < 64 && x.longValue() != Long.MIN_VALUE;
+    }
+
+    // Binary (Stein) gcd of two non-negative values; shifts instead of the divisions of Euclid.
+    // A negative argument (such as Math.abs(Long.MIN_VALUE)) would never terminate the loop,
+    // so it is reported as overflow and callers take the BigInteger path.
+    static long gcd(long a, long b) {
+        if ((a | b) < 0) throw new ArithmeticException("gcd of a negative value");
+        if (a == 0) return b;
+        if (b == 0) return a;
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>= Long.numberOfTrailingZeros(a);
+        do {
+            b >>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                long t = b;
+                b = a;
+                a = t;
+            }
+            b -= a;
+        } while (b != 0);
+        return a << shift;
+    }
+
+    boolean isBig() {
+        return bigNum != null;
+    }
+
+    BigInteger bigNumerator() {
+        return bigNum != null ? bigNum : BigInteger.valueOf(num);
+    }
+
+    BigInteger bigDenominator() {
+        return bigDen != null ? bigDen : BigInteger.valueOf(den);
     }
 
     public Fraction add(Fraction other) {
-        long newNum = this.num * other.den + other.num * this.den;
-        long newDen = this.den * other.den;
-        return new Fraction(newNum, newDen);
+        if (bigNum == null && other.bigNum == null) {
+            try {
+                long newNum = Math.addExact(Math.multiplyExact(this.num, other.den), Math.multiplyExact(other.num, this.den));
+                long newDen = Math.multiplyExact(this.den, other.den);
+                return new Fraction(newNum, newDen);
+            } catch (ArithmeticException overflow) {
+                // fall through to the exact path
+            }
+        }
+        return new Fraction(bigNumerator().multiply(other.bigDenominator()).add(other.bigNumerator().multiply(bigDenominator())),
+                bigDenominator().multiply(other.bigDenominator()));
     }
 
     public Fraction subtract(Fraction other) {
-        long newNum = this.num * other.den - other.num * this.den;
-        long newDen = this.den * other.den;
-        return new Fraction(newNum, newDen);
+        if (bigNum == null && other.bigNum == null) {
+            try {
+                long newNum = Math.subtractExact(Math.multiplyExact(this.num, other.den), Math.multiplyExact(other.num, this.den));
+                long newDen = Math.multiplyExact(this.den, other.den);
+                return new Fraction(newNum, newDen);
+            } catch (ArithmeticException overflow) {
+                // fall through to the exact path
+            }
+        }
+        return new Fraction(bigNumerator().multiply(other.bigDenominator()).subtract(other.bigNumerator().multiply(bigDenominator())),
+                bigDenominator().multiply(other.bigDenominator()));
     }
 
     public Fraction multiply(Fraction other) {
-        long newNum = this.num * other.num;
-        long newDen = this.den * other.den;
-        return new Fraction(newNum, newDen);
+        if (bigNum == null && other.bigNum == null) {
+            try {
+                long newNum = Math.multiplyExact(this.num, other.num);
+                long newDen = Math.multiplyExact(this.den, other.den);
+                return new Fraction(newNum, newDen);
+            } catch (ArithmeticException overflow) {
+                // fall through to the exact path
+            }
+        }
+        return new Fraction(bigNumerator().multiply(other.bigNumerator()), bigDenominator().multiply(other.bigDenominator()));
     }
 
     public Fraction divide(Fraction other) {
-        if (other.num == 0) throw new IllegalArgumentException("Division by zero");
-        long newNum = this.num * other.den;
-        long newDen = this.den * other.num;
-        return new Fraction(newNum, newDen);
+        if (other.isZero()) throw new IllegalArgumentException("Division by zero");
+        if (bigNum == null && other.bigNum == null) {
+            try {
+                long newNum = Math.multiplyExact(this.num, other.den);
+                long newDen = Math.multiplyExact(this.den, other.num);
+                return new Fraction(newNum, newDen);
+            } catch (ArithmeticException overflow) {
+                // fall through to the exact path
+            }
+        }
+        return new Fraction(bigNumerator().multiply(other.bigDenominator()), bigDenominator().multiply(other.bigNumerator()));
     }
 
     public int compareTo(Fraction other) {
-        long diff = this.num * other.den - other.num * this.den;
-        if (diff > 0) return 1;
-        if (diff < 0) return -1;
-        return 0;
+        if (bigNum == null && other.bigNum == null) {
+            try {
+                return Long.compare(Math.multiplyExact(this.num, other.den), Math.multiplyExact(other.num, this.den));
+            } catch (ArithmeticException overflow) {
+                // fall through to the exact path
+            }
+        }
+        return bigNumerator().multiply(other.bigDenominator()).compareTo(other.bigNumerator().multiply(bigDenominator()));
     }
 
     public boolean greaterThan(Fraction other) {
@@ -67,20 +161,31 @@ public class Fraction {
     }
 
     public boolean isZero() {
-        return num == 0;
+        return bigNum == null && num == 0;
+    }
+
+    public long getNumerator() {
+        if (bigNum != null) throw new ArithmeticException("Numerator does not fit in a long");
+        return num;
     }
 
     public long getDenominator() {
+        if (bigNum != null) throw new ArithmeticException("Denominator does not fit in a long");
         return den;
     }
 
     public boolean isInteger() {
-        return den == 1;
+        return bigNum != null ? bigDen.equals(BigInteger.ONE) : den == 1;
     }
 
+    // Both sides are always fully reduced with a positive denominator, and promoted only when
+    // they do not fit in longs, so equal values have identical representations
     public boolean equals(Fraction other) {
         if (other == null) return false;
-        return this.num * other.den == other.num * this.den;
+        if (bigNum != null || other.bigNum != null) {
+            return bigNumerator().equals(other.bigNumerator()) && bigDenominator().equals(other.bigDenominator());
+        }
+        return this.num == other.num && this.den == other.den;
     }
 
     @Override
@@ -92,10 +197,18 @@ public class Fraction {
 
     @Override
     public int hashCode() {
-        return Objects.hash(num, den);
+        if (bigNum != null) return 31 * bigNum.hashCode() + bigDen.hashCode();
+        return 31 * Long.hashCode(num) + Long.hashCode(den);
     }
 
     public String toString() {
+        if (bigNum != null) {
+            if (bigDen.equals(BigInteger.ONE)) return bigNum.toString();
+            BigInteger[] qr = bigNum.divideAndRemainder(bigDen);
+            if (qr[0].signum() == 0) return qr[1] + "/" + bigDen;
+            if (qr[1].signum() == 0) return qr[0].toString();
+            return qr[0] + "'" + qr[1] + "/" + bigDen;
+        }
         if (den == 1) return String.valueOf(num);
         long whole = num / den;
         long rem = num % den;
@@ -104,20 +217,89 @@ public class Fraction {
         return whole + "'" + rem + "/" + den;
     }
 
+    // Same text as toString, appended to out
+    void writeTo(OutputBuffer out) throws IOException {
+        if (bigNum != null) {
+            out.put(toString());
+            return;
+        }
+        if (den == 1) {
+            out.putLong(num);
+            return;
+        }
+        long whole = num / den;
+        long rem = num % den;
+        if (whole == 0) {
+            out.putLong(rem).put('/').putLong(den);
+        } else if (rem == 0) {
+            out.putLong(whole);
+        } else {
+            out.putLong(whole).put('\'').putLong(rem).put('/').putLong(den);
+        }
+    }
+
     public static Fraction parse(String s) {
+        return parse(s, 0, s.length());
+    }
+
+    // Natural numbers, proper fractions and mixed numbers ("2'3/4") in s[from, to), scanned
+    // in place without substrings; malformed input throws NumberFormatException
+    static Fraction parse(CharSequence s, int from, int to) {
+        int tick = -1, slash = -1;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '\'' && tick < 0 && slash < 0) {
+                tick = i;
+            } else if (c == '/' && slash < 0) {
+                slash = i;
+            }
+        }
+        if (tick >= 0 && slash < 0) throw new NumberFormatException("Bad fraction: " + s.subSequence(from, to));
+        try {
+            if (tick >= 0) {
+                long whole = parseLong(s, from, tick);
+                long fNum = parseLong(s, tick + 1, slash);
+                long fDen = parseLong(s, slash + 1, to);
+                return new Fraction(Math.addExact(Math.multiplyExact(whole, fDen), fNum), fDen);
+            } else if (slash >= 0) {
+                return new Fraction(parseLong(s, from, slash), parseLong(s, slash + 1, to));
+            } else {
+                return new Fraction(parseLong(s, from, to), 1);
+            }
+        } catch (ArithmeticException overflow) {
+            return parseBig(s.subSequence(from, to).toString());
+        }
+    }
+
+    // Signed decimal in s[from, to); overflow throws ArithmeticException so callers can retry with BigInteger
+    static long parseLong(CharSequence s, int from, int to) {
+        boolean neg = false;
+        if (from < to && (s.charAt(from) == '-' || s.charAt(from) == '+')) {
+            neg = s.charAt(from) == '-';
+            from++;
+        }
+        if (from >= to) throw new NumberFormatException("Expected digits: " + s);
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException("Bad digit in: " + s);
+            v = Math.addExact(Math.multiplyExact(v, 10), d);
+        }
+        return neg ? -v : v;
+    }
+
+    // Slow path for literals that do not fit in a long; malformed input still throws
+    private static Fraction parseBig(String s) {
         if (s.contains("'")) {
             String[] parts = s.split("'");
-            long whole = Long.parseLong(parts[0]);
-            String fracPart = parts[1];
-            String[] frac = fracPart.split("/");
-            long fNum = Long.parseLong(frac[0]);
-            long fDen = Long.parseLong(frac[1]);
-            return new Fraction(whole * fDen + fNum, fDen);
+            String[] frac = parts[1].split("/");
+            BigInteger fDen = new BigInteger(frac[1]);
+            return new Fraction(new BigInteger(parts[0]).multiply(fDen).add(new BigInteger(frac[0])), fDen);
         } else if (s.contains("/")) {
             String[] parts = s.split("/");
-            return new Fraction(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new Fraction(new BigInteger(parts[0]), new BigInteger(parts[1]));
         } else {
-            return new Fraction(Long.parseLong(s), 1);
+            return new Fraction(new BigInteger(s), BigInteger.ONE);
         }
     }
 }
\ No newline at end of file
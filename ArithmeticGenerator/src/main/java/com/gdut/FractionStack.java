@@ -0,0 +1,151 @@
+package com.gdut;
+
+// Allocation-free fraction arithmetic over a stack of primitive numerator/denominator
+// pairs, used by Expr evaluation and validation on the hot path. Values are kept reduced
+// with a positive denominator, exactly like Fraction, so results can be materialised as
+// Fraction objects only when they are needed for output. All arithmetic is
+// overflow-checked: an ArithmeticException tells the caller to redo the work on the
+// Fraction path, which promotes to BigInteger.
+public class FractionStack {
+    private static final ThreadLocal<FractionStack> LOCAL = ThreadLocal.withInitial(FractionStack::new);
+
+    private long[] nums = new long[16];
+    private long[] dens = new long[16];
+    private int size;
+    // Why the last validating apply returned false, as a GenerationStats reason
+    int rejection;
+
+    // Per-thread scratch stack, emptied for the caller
+    static FractionStack local() {
+        FractionStack st = LOCAL.get();
+        st.clear();
+        return st;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void push(long num, long den) {
+        if (size == nums.length) {
+            nums = java.util.Arrays.copyOf(nums, size * 2);
+            dens = java.util.Arrays.copyOf(dens, size * 2);
+        }
+        nums[size] = num;
+        dens[size] = den;
+        size++;
+    }
+
+    public void push(Fraction f) {
+        push(f.getNumerator(), f.getDenominator());
+    }
+
+    public long peekNum() {
+        return nums[size - 1];
+    }
+
+    public long peekDen() {
+        return dens[size - 1];
+    }
+
+    public Fraction pop() {
+        size--;
+        return new Fraction(nums[size], dens[size]);
+    }
+
+    // Pops the right then the left operand and pushes (left op right). With validate, a
+    // result that breaks a problem constraint (negative difference, zero divisor, integer
+    // quotient) is reported by returning false and nothing is pushed; without it only a
+    // zero divisor is an error, as in Fraction.divide.
+    public boolean apply(char op, boolean validate) {
+        long n2 = nums[size - 1], d2 = dens[size - 1];
+        long n1 = nums[size - 2], d1 = dens[size - 2];
+        size -= 2;
+        switch (op) {
+            case '+':
+                addTo(n1, d1, n2, d2);
+                return true;
+            case '-':
+                addTo(n1, d1, Math.negateExact(n2), d2);
+                if (validate && peekNum() < 0) {
+                    size--;
+                    rejection = GenerationStats.NEGATIVE;
+                    return false;
+                }
+                return true;
+            case '*':
+                multiplyTo(n1, d1, n2, d2);
+                return true;
+            case '/':
+                if (n2 == 0) {
+                    if (validate) {
+                        rejection = GenerationStats.ZERO_DIVISOR;
+                        return false;
+                    }
+                    throw new IllegalArgumentException("Division by zero");
+                }
+                if (n2 < 0) {
+                    multiplyTo(n1, d1, Math.negateExact(d2), Math.negateExact(n2));
+                } else {
+                    multiplyTo(n1, d1, d2, n2);
+                }
+                if (validate && peekDen() == 1) {
+                    size--;
+                    rejection = GenerationStats.INTEGER_QUOTIENT;
+                    return false;
+                }
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+    }
+
+    // n1/d1 + n2/d2 reduced through the gcd of the denominators (Knuth 4.5.1)
+    private void addTo(long n1, long d1, long n2, long d2) {
+        long g = Fraction.gcd(d1, d2);
+        long t = Math.addExact(Math.multiplyExact(n1, d2 / g), Math.multiplyExact(n2, d1 / g));
+        if (t == 0) {
+            push(0, 1);
+            return;
+        }
+        if (t == Long.MIN_VALUE) throw new ArithmeticException("long overflow");
+        long g2 = Fraction.gcd(Math.abs(t), g);
+        pushResult(t / g2, Math.multiplyExact(d1 / g, d2 / g2));
+    }
+
+    // Cross-cancel before multiplying so the product is already reduced
+    private void multiplyTo(long n1, long d1, long n2, long d2) {
+        if (n1 == 0 || n2 == 0) {
+            push(0, 1);
+            return;
+        }
+        long g1 = Fraction.gcd(Math.abs(n1), d2);
+        long g2 = Fraction.gcd(Math.abs(n2), d1);
+        pushResult(Math.multiplyExact(n1 / g1, n2 / g2), Math.multiplyExact(d1 / g2, d2 / g1));
+    }
+
+    // The exact ops can land on Long.MIN_VALUE without throwing, but it has no positive
+    // counterpart (Math.abs/negate), so like Fraction the kernel keeps it out as overflow
+    private void pushResult(long num, long den) {
+        if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) throw new ArithmeticException("long overflow");
+        push(num, den);
+    }
+
+    // Validated (l op r) as a Fraction, or null when it breaks a problem constraint; falls
+    // back to the Fraction path if the long kernel overflows
+    public Fraction combine(char op, Fraction l, Fraction r) {
+        clear();
+        try {
+            push(l);
+            push(r);
+            return apply(op, true) ? pop() : null;
+        } catch (ArithmeticException overflow) {
+            Expr e = new Binary(String.valueOf(op), new Leaf(l), new Leaf(r));
+            return e.isValid() ? e.eval() : null;
+        }
+    }
+}
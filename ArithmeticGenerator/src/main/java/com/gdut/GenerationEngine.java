@@ -0,0 +1,241 @@
+package com.gdut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Generates problems in fixed-size batches. Batch b always draws from the same RNG stream
+// (derived from the seed and b) and batches are merged strictly in index order, so the
+// output depends only on the seed and the parameters, never on thread count or timing.
+public class GenerationEngine {
+    static final int BATCH_ATTEMPTS = 1024;
+    // Batches in flight; a constant so the submission order does not depend on -t either
+    static final int WINDOW = 64;
+
+    private final List<Leaf> leaves = new ArrayList<>();
+    private final long seed;
+    private final int threads;
+    private final ExprPool pool;
+    private final boolean offHeapDedupe;
+    // Non-null with adaptive (ignored with usePool); fitted by the merge stage
+    private final AdaptiveController controller;
+    // Merged canonical forms, sized for n by run; only the merge stage touches it
+    private CanonicalSet uniqueCanonicals;
+    // Totals over merged batches; the part of the last batch left over once n is reached
+    // counts as attempted but neither accepted nor rejected
+    private final GenerationStats stats = new GenerationStats();
+    // Merge-stage scratch: the new problems of the batch being merged
+    private final List<Problem> fresh = new ArrayList<>();
+
+    public GenerationEngine(List<Fraction> leaves, long seed, int threads) {
+        this(leaves, seed, threads, false);
+    }
+
+    // With usePool, candidates are composed from an ExprPool built from its own seeded stream
+    public GenerationEngine(List<Fraction> leaves, long seed, int threads, boolean usePool) {
+        this(leaves, seed, threads, usePool, false);
+    }
+
+    // With offHeapDedupe the dedupe set keeps its slot table and canonical encodings outside the heap
+    public GenerationEngine(List<Fraction> leaves, long seed, int threads, boolean usePool, boolean offHeapDedupe) {
+        this(leaves, seed, threads, usePool, offHeapDedupe, false);
+    }
+
+    // With adaptive the random trees come from an AdaptiveController instead of generateExpr
+    public GenerationEngine(List<Fraction> leaves, long seed, int threads, boolean usePool, boolean offHeapDedupe,
+                            boolean adaptive) {
+        // Leaves are immutable, so every tree shares one node (and its precomputed key) per value
+        for (Fraction f : leaves) {
+            this.leaves.add(new Leaf(f));
+        }
+        this.seed = seed;
+        this.threads = threads;
+        this.pool = usePool ? ExprPool.build(leaves, new SplittableRandom(streamSeed(seed, -2)), ExprPool.CAPACITY) : null;
+        this.offHeapDedupe = offHeapDedupe;
+        this.controller = adaptive && !usePool ? new AdaptiveController(this.leaves) : null;
+    }
+
+    // Attempt budget: 1M is plenty for 10k problems; larger batches get a proportional budget
+    static long maxAttempts(int n) {
+        return Math.max(1000000L, 100L * n);
+    }
+
+    // SplitMix64 finalizer over (seed, batch index): independent, reproducible streams
+    static long streamSeed(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public List<Problem> run(int n) {
+        List<Problem> problems = new ArrayList<>();
+        try {
+            run(n, new ProblemSink() {
+                @Override
+                public void accept(Problem p) {
+                    problems.add(p);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return problems;
+    }
+
+    // Streams accepted problems to sink in their final order and returns how many there
+    // were; only the dedupe set and the batches in flight stay in memory
+    public int run(int n, ProblemSink sink) throws IOException {
+        // Checked before anything is generated rather than failing partway through the run
+        if (n > CanonicalSet.MAX_SIZE) {
+            throw new IllegalArgumentException("At most " + CanonicalSet.MAX_SIZE + " problems per run (n = " + n + ")");
+        }
+        int[] accepted = {0};
+        uniqueCanonicals = new CanonicalSet(n, offHeapDedupe);
+        long maxBatches = (maxAttempts(n) + BATCH_ATTEMPTS - 1) / BATCH_ATTEMPTS;
+
+        if (threads <= 1) {
+            for (long b = 0; b < maxBatches && accepted[0] < n; b++) {
+                merge(runBatch(b), sink, accepted, n);
+            }
+            return accepted[0];
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<Batch>> inFlight = new ArrayDeque<>();
+            long next = 0;
+            while (next < maxBatches && inFlight.size() < WINDOW) {
+                long b = next++;
+                inFlight.add(pool.submit(() -> runBatch(b)));
+            }
+            while (!inFlight.isEmpty() && accepted[0] < n) {
+                long t0 = System.nanoTime();
+                Batch batch = inFlight.poll().get();
+                stats.waitNanos += System.nanoTime() - t0;
+                merge(batch, sink, accepted, n);
+                if (next < maxBatches && accepted[0] < n) {
+                    long b = next++;
+                    inFlight.add(pool.submit(() -> runBatch(b)));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generation worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return accepted[0];
+    }
+
+    // Valid candidates of one batch and the worker-side counters that produced them
+    private static class Batch {
+        final long index;
+        final List<Problem> candidates = new ArrayList<>();
+        final GenerationStats stats = new GenerationStats();
+
+        Batch(long index) {
+            this.index = index;
+        }
+    }
+
+    private Batch runBatch(long index) {
+        GenerationStats.BatchEvent event = new GenerationStats.BatchEvent();
+        event.begin();
+        long t0 = System.nanoTime();
+        SplittableRandom rand = new SplittableRandom(streamSeed(seed, index));
+        FractionStack st = new FractionStack();
+        Batch batch = new Batch(index);
+        AdaptiveController.Settings settings = controller == null ? null : controller.settings(index);
+        for (int i = 0; i < BATCH_ATTEMPTS; i++) {
+            if (pool != null) {
+                Problem p = pool.next(rand, st);
+                if (p != null) {
+                    batch.stats.valid(batch.stats.candidate(p.expr));
+                    batch.candidates.add(p);
+                } else {
+                    batch.stats.attempts++;
+                    batch.stats.reject(st.rejection);
+                }
+                continue;
+            }
+            Expr expr = settings != null ? settings.next(rand) : ArithmeticGenerator.generateExpr(3, leaves, rand);
+            int size = batch.stats.candidate(expr);
+            Fraction value = analyze(expr, st, batch.stats);
+            if (value != null) {
+                batch.stats.valid(size);
+                batch.candidates.add(new Problem(expr, value));
+            }
+        }
+        batch.stats.generateNanos = System.nanoTime() - t0;
+        event.end();
+        if (event.shouldCommit()) {
+            event.batch = index;
+            event.attempts = batch.stats.attempts;
+            event.valid = batch.candidates.size();
+            event.negative = batch.stats.rejected[GenerationStats.NEGATIVE];
+            event.zeroDivisor = batch.stats.rejected[GenerationStats.ZERO_DIVISOR];
+            event.integerQuotient = batch.stats.rejected[GenerationStats.INTEGER_QUOTIENT];
+            event.overflow = batch.stats.rejected[GenerationStats.OVERFLOW];
+            event.commit();
+        }
+        return batch;
+    }
+
+    // Value of a valid candidate, or null (with the reason counted) if it breaks a constraint
+    private static Fraction analyze(Expr expr, FractionStack st, GenerationStats stats) {
+        st.clear();
+        try {
+            if (expr.analyze(st)) return st.pop();
+            stats.reject(st.rejection);
+            return null;
+        } catch (ArithmeticException overflow) {
+            if (expr.isValid()) return expr.eval();
+            stats.reject(GenerationStats.OVERFLOW);
+            return null;
+        }
+    }
+
+    // Final stage: the only writer of the canonical set, numbering problems in batch order.
+    // The batch is deduped first and then handed to the sink, so each phase is timed once.
+    private void merge(Batch batch, ProblemSink sink, int[] accepted, int n) throws IOException {
+        stats.add(batch.stats);
+        long t0 = System.nanoTime();
+        fresh.clear();
+        for (Problem p : batch.candidates) {
+            if (accepted[0] + fresh.size() >= n) break;
+            if (uniqueCanonicals.add(p.expr)) {
+                fresh.add(p);
+                stats.accept(p.expr);
+            } else {
+                stats.reject(GenerationStats.DUPLICATE);
+            }
+        }
+        long t1 = System.nanoTime();
+        for (Problem p : fresh) sink.accept(p);
+        accepted[0] += fresh.size();
+        stats.dedupeNanos += t1 - t0;
+        stats.outputNanos += System.nanoTime() - t1;
+        stats.publish();
+        if (controller != null) controller.merged(batch.index, stats);
+    }
+
+    GenerationStats stats() {
+        return stats;
+    }
+
+    long attempts() {
+        return stats.attempts;
+    }
+
+    long invalid() {
+        return stats.invalid();
+    }
+
+    long duplicates() {
+        return stats.rejected[GenerationStats.DUPLICATE];
+    }
+}
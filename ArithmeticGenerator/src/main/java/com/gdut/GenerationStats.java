@@ -0,0 +1,310 @@
+package com.gdut;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Counters of a generation run: every candidate by outcome (accepted or the rule that
+// rejected it), the tree depth, operator count, operators and operand classes of candidates
+// and of accepted problems (what --adaptive fits its sampler to), and where the time went.
+// Workers fill one instance per batch; the merge stage adds them up in batch order, so the
+// totals are as deterministic as the output. Summarized by --stats, recorded by JFR as
+// com.gdut.GenerationBatch / com.gdut.Generation events, and with --jmx readable live as
+// com.gdut:type=GenerationStats (a snapshot published after each merged batch). JMX is
+// opt-in because starting the platform MBean server costs a noticeable part of a second.
+public class GenerationStats implements GenerationStatsMBean {
+    static final int NEGATIVE = 0, ZERO_DIVISOR = 1, INTEGER_QUOTIENT = 2, OVERFLOW = 3, DUPLICATE = 4;
+    private static final String[] REASONS = {"negative -", "zero divisor", "integer quotient", "overflow", "duplicate"};
+    static final int MAX_DEPTH = Enumerator.MAX_OPS;
+    static final String OPERATORS = "+-*/";
+    private static final String[] OPERAND_CLASSES = {"natural", "proper", "mixed"};
+    static final String OBJECT_NAME = "com.gdut:type=GenerationStats";
+
+    long attempts;
+    long accepted;
+    final long[] rejected = new long[REASONS.length];
+    final long[] candidateDepth = new long[MAX_DEPTH + 1];
+    final long[] acceptedDepth = new long[MAX_DEPTH + 1];
+    // By number of operators, and occurrences of each operator / operand class
+    final long[] candidateSize = new long[MAX_DEPTH + 1];
+    final long[] acceptedSize = new long[MAX_DEPTH + 1];
+    final long[] candidateOperators = new long[OPERATORS.length()];
+    final long[] acceptedOperators = new long[OPERATORS.length()];
+    final long[] candidateOperands = new long[Leaf.CLASSES];
+    final long[] acceptedOperands = new long[Leaf.CLASSES];
+    // By number of operators: candidates that passed the rules and went on to the dedupe probe
+    final long[] validSize = new long[MAX_DEPTH + 1];
+    // Summed over workers, so it can exceed the wall time with -t > 1
+    long generateNanos;
+    // Merge stage: dedupe, handing problems to the sink (includes waiting on a full output
+    // queue, i.e. file I/O falling behind), and waiting for the next batch
+    long dedupeNanos, outputNanos, waitNanos;
+    // What the MBean getters read; null until register(), then replaced by publish()
+    private volatile Snapshot snapshot;
+
+    // Returns the candidate's operator count, for valid()
+    int candidate(Expr expr) {
+        attempts++;
+        candidateDepth[Math.min(expr.depth(), MAX_DEPTH)]++;
+        int size = Math.min(expr.census(candidateOperators, candidateOperands), MAX_DEPTH);
+        candidateSize[size]++;
+        return size;
+    }
+
+    void valid(int size) {
+        validSize[size]++;
+    }
+
+    void reject(int reason) {
+        rejected[reason]++;
+    }
+
+    void accept(Expr expr) {
+        accepted++;
+        acceptedDepth[Math.min(expr.depth(), MAX_DEPTH)]++;
+        acceptedSize[Math.min(expr.census(acceptedOperators, acceptedOperands), MAX_DEPTH)]++;
+    }
+
+    // Folds a merged batch's worker-side counters into the run totals
+    void add(GenerationStats batch) {
+        attempts += batch.attempts;
+        for (int i = 0; i < rejected.length; i++) rejected[i] += batch.rejected[i];
+        for (int i = 0; i <= MAX_DEPTH; i++) candidateDepth[i] += batch.candidateDepth[i];
+        for (int i = 0; i <= MAX_DEPTH; i++) candidateSize[i] += batch.candidateSize[i];
+        for (int i = 0; i <= MAX_DEPTH; i++) validSize[i] += batch.validSize[i];
+        for (int i = 0; i < candidateOperators.length; i++) candidateOperators[i] += batch.candidateOperators[i];
+        for (int i = 0; i < candidateOperands.length; i++) candidateOperands[i] += batch.candidateOperands[i];
+        generateNanos += batch.generateNanos;
+    }
+
+    // Called by the merge stage after each batch. The counters themselves are plain fields
+    // owned by the merge stage, so a JMX thread only ever sees a complete, immutable copy.
+    void publish() {
+        if (snapshot != null) snapshot = new Snapshot(this);
+    }
+
+    long invalid() {
+        return rejected[NEGATIVE] + rejected[ZERO_DIVISOR] + rejected[INTEGER_QUOTIENT] + rejected[OVERFLOW];
+    }
+
+    void print(PrintStream out) {
+        out.printf("Candidates: %d, accepted %d (%s)%n", attempts, accepted, pct(accepted));
+        StringBuilder sb = new StringBuilder("Rejected:");
+        for (int i = 0; i < REASONS.length; i++) {
+            sb.append(i == 0 ? " " : ", ").append(REASONS[i]).append(' ').append(rejected[i])
+                    .append(" (").append(pct(rejected[i])).append(')');
+        }
+        out.println(sb);
+        out.println("Depth (candidates/accepted): " + histogram(null, candidateDepth, acceptedDepth));
+        out.println("Operators per problem (candidates/accepted): " + histogram(null, candidateSize, acceptedSize));
+        out.println("Operator uses (candidates/accepted): "
+                + histogram(OPERATORS.split(""), candidateOperators, acceptedOperators));
+        out.println("Operands (candidates/accepted): "
+                + histogram(OPERAND_CLASSES, candidateOperands, acceptedOperands));
+        out.printf("Time: generate %d ms (all workers), dedupe %d ms, output %d ms, waiting for batches %d ms%n",
+                generateNanos / 1_000_000, dedupeNanos / 1_000_000, outputNanos / 1_000_000, waitNanos / 1_000_000);
+        long nodes = 0, probes = 0;
+        for (long c : candidateOperators) nodes += c;
+        for (long c : candidateOperands) nodes += c;
+        for (long c : validSize) probes += c;
+        if (nodes > 0 && probes > 0) {
+            double perNode = (double) generateNanos / nodes, perProbe = (double) dedupeNanos / probes;
+            out.printf("Cost: %.0f ns per generated node, %.0f ns per dedupe probe (%.1f nodes; --adaptive assumes %.0f)%n",
+                    perNode, perProbe, perProbe / perNode, AdaptiveController.PROBE_NODES);
+        }
+    }
+
+    private String pct(long count) {
+        return attempts == 0 ? "-" : String.format("%.1f%%", 100.0 * count / attempts);
+    }
+
+    private static String histogram(String[] labels, long[] candidates, long[] accepted) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < candidates.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(labels == null ? Integer.toString(i) : labels[i]).append(": ")
+                    .append(candidates[i]).append('/').append(accepted[i]);
+        }
+        return sb.toString();
+    }
+
+    // Registers this run's counters, replacing those of an earlier run in the same JVM
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            snapshot = new Snapshot(this);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Warning: could not register " + OBJECT_NAME + ": " + e.getMessage());
+        }
+    }
+
+    void commitSummary(long wallNanos) {
+        Summary event = new Summary();
+        if (!event.isEnabled()) return;
+        event.attempts = attempts;
+        event.accepted = accepted;
+        event.negative = rejected[NEGATIVE];
+        event.zeroDivisor = rejected[ZERO_DIVISOR];
+        event.integerQuotient = rejected[INTEGER_QUOTIENT];
+        event.overflow = rejected[OVERFLOW];
+        event.duplicate = rejected[DUPLICATE];
+        event.generateTime = generateNanos;
+        event.dedupeTime = dedupeNanos;
+        event.outputTime = outputNanos;
+        event.waitTime = waitNanos;
+        event.wallTime = wallNanos;
+        event.commit();
+    }
+
+    @Override
+    public long getAttempts() {
+        return snapshot.attempts;
+    }
+
+    @Override
+    public long getAccepted() {
+        return snapshot.accepted;
+    }
+
+    @Override
+    public long getRejectedNegative() {
+        return snapshot.rejected[NEGATIVE];
+    }
+
+    @Override
+    public long getRejectedZeroDivisor() {
+        return snapshot.rejected[ZERO_DIVISOR];
+    }
+
+    @Override
+    public long getRejectedIntegerQuotient() {
+        return snapshot.rejected[INTEGER_QUOTIENT];
+    }
+
+    @Override
+    public long getRejectedOverflow() {
+        return snapshot.rejected[OVERFLOW];
+    }
+
+    @Override
+    public long getRejectedDuplicate() {
+        return snapshot.rejected[DUPLICATE];
+    }
+
+    @Override
+    public long[] getCandidateDepthHistogram() {
+        return snapshot.candidateDepth.clone();
+    }
+
+    @Override
+    public long[] getAcceptedDepthHistogram() {
+        return snapshot.acceptedDepth.clone();
+    }
+
+    @Override
+    public long getGenerateMillis() {
+        return snapshot.generateNanos / 1_000_000;
+    }
+
+    @Override
+    public long getDedupeMillis() {
+        return snapshot.dedupeNanos / 1_000_000;
+    }
+
+    @Override
+    public long getOutputMillis() {
+        return snapshot.outputNanos / 1_000_000;
+    }
+
+    @Override
+    public long getWaitMillis() {
+        return snapshot.waitNanos / 1_000_000;
+    }
+
+    // The counters the MBean exposes, as of one merged batch
+    private static final class Snapshot {
+        final long attempts, accepted;
+        final long[] rejected, candidateDepth, acceptedDepth;
+        final long generateNanos, dedupeNanos, outputNanos, waitNanos;
+
+        Snapshot(GenerationStats s) {
+            attempts = s.attempts;
+            accepted = s.accepted;
+            rejected = s.rejected.clone();
+            candidateDepth = s.candidateDepth.clone();
+            acceptedDepth = s.acceptedDepth.clone();
+            generateNanos = s.generateNanos;
+            dedupeNanos = s.dedupeNanos;
+            outputNanos = s.outputNanos;
+            waitNanos = s.waitNanos;
+        }
+    }
+
+    // One worker batch: its duration is the time spent drawing and validating candidates
+    @Name("com.gdut.GenerationBatch")
+    @Label("Generation Batch")
+    @Category({"Arithmetic Generator", "Generation"})
+    static class BatchEvent extends Event {
+        @Label("Batch")
+        long batch;
+        @Label("Candidates")
+        long attempts;
+        @Label("Valid")
+        long valid;
+        @Label("Rejected: Negative Difference")
+        long negative;
+        @Label("Rejected: Zero Divisor")
+        long zeroDivisor;
+        @Label("Rejected: Integer Quotient")
+        long integerQuotient;
+        @Label("Rejected: Overflow")
+        long overflow;
+    }
+
+    @Name("com.gdut.Generation")
+    @Label("Generation")
+    @Description("Totals of one generation run")
+    @Category({"Arithmetic Generator", "Generation"})
+    static class Summary extends Event {
+        @Label("Candidates")
+        long attempts;
+        @Label("Accepted")
+        long accepted;
+        @Label("Rejected: Negative Difference")
+        long negative;
+        @Label("Rejected: Zero Divisor")
+        long zeroDivisor;
+        @Label("Rejected: Integer Quotient")
+        long integerQuotient;
+        @Label("Rejected: Overflow")
+        long overflow;
+        @Label("Rejected: Duplicate")
+        long duplicate;
+        @Label("Generate Time (All Workers)")
+        @Timespan
+        long generateTime;
+        @Label("Dedupe Time")
+        @Timespan
+        long dedupeTime;
+        @Label("Output Time")
+        @Timespan
+        long outputTime;
+        @Label("Wait Time")
+        @Timespan
+        long waitTime;
+        @Label("Wall Time")
+        @Timespan
+        long wallTime;
+    }
+}
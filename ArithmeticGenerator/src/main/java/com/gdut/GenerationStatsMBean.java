@@ -0,0 +1,30 @@
+package com.gdut;
+
+// JMX view of GenerationStats
+public interface GenerationStatsMBean {
+    long getAttempts();
+
+    long getAccepted();
+
+    long getRejectedNegative();
+
+    long getRejectedZeroDivisor();
+
+    long getRejectedIntegerQuotient();
+
+    long getRejectedOverflow();
+
+    long getRejectedDuplicate();
+
+    long[] getCandidateDepthHistogram();
+
+    long[] getAcceptedDepthHistogram();
+
+    long getGenerateMillis();
+
+    long getDedupeMillis();
+
+    long getOutputMillis();
+
+    long getWaitMillis();
+}
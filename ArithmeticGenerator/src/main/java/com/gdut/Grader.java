@@ -0,0 +1,393 @@
+package com.gdut;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Grades exercise/answer pairs in parallel: line i of both files forms one pair, the pairs
+// are split into aligned line-range chunks graded on a fork-join pool, and the per-chunk
+// index lists are concatenated in chunk order so the report matches a sequential pass.
+// Both files are memory-mapped and lines are scanned in place, so heap use does not grow
+// with the file size beyond the result indices.
+//
+// With an answer key (see AnswerKey) a line whose expression fingerprint matches its
+// record takes the cached value instead of being evaluated, and the key is rewritten
+// with the values of this run, so a re-grade only evaluates exercises that changed.
+// A trusted key (the generator's own, via --trust) is not checked against the exercises
+// line by line: as long as the exercise file still has the size and mtime recorded in the
+// key (or is absent), the answers are compared straight to it and the exercises are never
+// read. Otherwise the key is only a cache and grading goes the checked way.
+// Inputs ending in .gz are decompressed first (see BlockGzip).
+//
+// Every stage (opening and indexing each file, reading the key, grading, committing the
+// key, writing the report) and every chunk is a JFR event, com.gdut.GradeStage and
+// com.gdut.GradeChunk; RecordingSummary turns a recording into per-stage throughput.
+// Without a recording running the events cost next to nothing.
+public class Grader {
+    static final int CHUNK_LINES = 4096;
+    private static final int SKIPPED = -1, WRONG = 0, CORRECT = 1;
+    private static final Fraction SKIP = new Fraction(0, 1);
+
+    private final int parallelism;
+    private final Path keyFile;
+    private final boolean trustKey;
+
+    public Grader(int parallelism) {
+        this(parallelism, null, false);
+    }
+
+    public Grader(int parallelism, Path keyFile) {
+        this(parallelism, keyFile, false);
+    }
+
+    public Grader(int parallelism, Path keyFile, boolean trustKey) {
+        this.parallelism = Math.max(1, parallelism);
+        this.keyFile = keyFile;
+        this.trustKey = trustKey;
+    }
+
+    public Result grade(Path exerFile, Path ansFile) throws IOException {
+        StageEvent stage = StageEvent.begin("open answers", ansFile);
+        MappedFile ans = open(ansFile);
+        stage.done(ans.size(), 0);
+        stage = StageEvent.begin("index answers", ansFile);
+        MappedFile.LineIndex ansIndex = ans.index(CHUNK_LINES);
+        stage.done(ans.size(), ansIndex.lines);
+        if (trustKey) {
+            stage = StageEvent.begin("read key", keyFile);
+            try (AnswerKey key = AnswerKey.open(keyFile)) {
+                stage.done(0, key != null ? key.count() : 0);
+                // A key with holes still needs the exercises for those lines, and a key for other
+                // exercises is no use: grade the checked way
+                if (key != null && key.complete() && key.describes(exerFile)) {
+                    int lines = (int) Math.min(key.count(), ansIndex.lines);
+                    return run(chunks(null, null, ans, ansIndex, lines, key, null), lines, ans.size());
+                }
+            }
+        }
+        stage = StageEvent.begin("open exercises", exerFile);
+        MappedFile exer = open(exerFile);
+        stage.done(exer.size(), 0);
+        stage = StageEvent.begin("index exercises", exerFile);
+        MappedFile.LineIndex exerIndex = exer.index(CHUNK_LINES);
+        stage.done(exer.size(), exerIndex.lines);
+        int lines = (int) Math.min(exerIndex.lines, ansIndex.lines);
+        stage = StageEvent.begin("read key", keyFile);
+        try (AnswerKey oldKey = keyFile != null ? AnswerKey.open(keyFile) : null;
+             AnswerKey.Writer newKey = keyFile != null ? new AnswerKey.Writer(keyFile, exerFile) : null) {
+            if (keyFile != null) stage.done(0, oldKey != null ? oldKey.count() : 0);
+            Chunk[] chunks = chunks(exer, exerIndex, ans, ansIndex, lines, oldKey, newKey);
+            Result result = run(chunks, lines, exer.size() + ans.size());
+            if (newKey != null) {
+                stage = StageEvent.begin("commit key", keyFile);
+                newKey.commit(lines, result.missing == 0);
+                stage.done((long) lines * AnswerKey.RECORD, lines);
+            }
+            return result;
+        }
+    }
+
+    // A .gz input is inflated (block-parallel when it came from BlockGzip) into a temporary
+    // file that is mapped and then deleted; the mapping stays valid until it is collected
+    private MappedFile open(Path file) throws IOException {
+        if (!BlockGzip.isGzip(file)) return new MappedFile(file);
+        Path plain = Files.createTempFile("grade", ".txt");
+        try {
+            BlockGzip.inflate(file, plain, parallelism);
+            return new MappedFile(plain);
+        } finally {
+            try {
+                Files.delete(plain);
+            } catch (IOException e) {
+                plain.toFile().deleteOnExit();  // platforms that refuse to delete mapped files
+            }
+        }
+    }
+
+    private static Chunk[] chunks(MappedFile exer, MappedFile.LineIndex exerIndex, MappedFile ans,
+                                  MappedFile.LineIndex ansIndex, int lines, AnswerKey oldKey, AnswerKey.Writer newKey) {
+        Chunk[] chunks = new Chunk[(lines + CHUNK_LINES - 1) / CHUNK_LINES];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new Chunk(exer, exer != null ? exerIndex.starts[c] : 0, ans, ansIndex.starts[c],
+                    c * CHUNK_LINES, Math.min(lines, (c + 1) * CHUNK_LINES), oldKey, newKey);
+        }
+        return chunks;
+    }
+
+    private Result run(Chunk[] chunks, int lines, long bytes) throws IOException {
+        StageEvent stage = StageEvent.begin("grade", null);
+        try {
+            if (parallelism <= 1) {
+                for (Chunk chunk : chunks) chunk.compute();
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            invokeAll(chunks);
+                        }
+                    });
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Result result = Result.merge(chunks);
+        stage.done(bytes, lines);
+        return result;
+    }
+
+    // 1-based indices of one line range; correct and wrong are each in ascending order
+    private static class Chunk extends RecursiveAction {
+        private final MappedFile exer, ans;
+        private final long exerStart, ansStart;
+        private final int from, to;
+        private final AnswerKey oldKey;
+        private final AnswerKey.Writer newKey;
+        int[] correct = new int[16], wrong = new int[16];
+        int correctCount, wrongCount, evaluated, missing;
+
+        Chunk(MappedFile exer, long exerStart, MappedFile ans, long ansStart, int from, int to,
+              AnswerKey oldKey, AnswerKey.Writer newKey) {
+            this.exer = exer;
+            this.exerStart = exerStart;
+            this.ans = ans;
+            this.ansStart = ansStart;
+            this.from = from;
+            this.to = to;
+            this.oldKey = oldKey;
+            this.newKey = newKey;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                gradeRange();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void gradeRange() throws IOException {
+            ChunkEvent event = new ChunkEvent();
+            event.begin();
+            MappedFile.Slice expr = exer != null ? new MappedFile.Slice(exer) : null;
+            MappedFile.Slice answer = new MappedFile.Slice(ans);
+            ByteBuffer cached = oldKey != null
+                    ? oldKey.read(from, to - from, ByteBuffer.allocate((to - from) * AnswerKey.RECORD)) : null;
+            ByteBuffer records = newKey != null ? ByteBuffer.allocate((to - from) * AnswerKey.RECORD) : null;
+            long ep = exerStart, ap = ansStart;
+            for (int i = from; i < to; i++) {
+                long ee = exer != null ? exer.lineEnd(ep) : 0, ae = ans.lineEnd(ap);
+                int verdict = gradeLine(exer, ep, ee, expr, ans, ap, ae, answer, cached, records);
+                if (verdict == CORRECT) {
+                    if (correctCount == correct.length) correct = Arrays.copyOf(correct, correctCount * 2);
+                    correct[correctCount++] = i + 1;
+                } else if (verdict == WRONG) {
+                    if (wrongCount == wrong.length) wrong = Arrays.copyOf(wrong, wrongCount * 2);
+                    wrong[wrongCount++] = i + 1;
+                }
+                ep = ee + 1;
+                ap = ae + 1;
+            }
+            if (records != null) newKey.write(from, records);
+            event.end();
+            if (event.shouldCommit()) {
+                event.chunk = from / CHUNK_LINES;
+                event.lines = to - from;
+                event.correct = correctCount;
+                event.wrong = wrongCount;
+                event.evaluated = evaluated;
+                event.bytes = (exer != null ? ep - exerStart : 0) + ap - ansStart;
+                event.commit();
+            }
+        }
+
+        // Lines that are not "N. ..." are skipped; anything that fails to parse or evaluate is wrong.
+        // Works on byte offsets of the two lines; expr and answer are reused views for the parsers.
+        // cached holds this line's old key record (if any) at its position and records receives the
+        // new one. Without an exercise file the cached value is trusted as is.
+        private int gradeLine(MappedFile exer, long es, long ee, MappedFile.Slice expr,
+                              MappedFile ans, long as, long ae, MappedFile.Slice answer,
+                              ByteBuffer cached, ByteBuffer records) {
+            long oldPrint = 0, oldNum = 0, oldDen = 0;
+            if (cached != null && cached.hasRemaining()) {
+                oldPrint = cached.getLong();
+                oldNum = cached.getLong();
+                oldDen = cached.getLong();
+            }
+
+            Fraction computed = exer == null
+                    ? new Fraction(oldNum, oldDen)
+                    : valueOf(exer, es, ee, expr, oldPrint, oldNum, oldDen, records);
+            if (computed == SKIP) return SKIPPED;
+
+            // Parse answer: "1. ans"
+            long dot = ans.indexOf('.', as, ae);
+            if (dot < 0) return SKIPPED;
+            long from = ans.skipBlank(dot + 1, ae);
+            answer.set(from, ans.trimEnd(from, ae));
+
+            try {
+                return computed != null && computed.equals(Fraction.parse(answer, 0, answer.length())) ? CORRECT : WRONG;
+            } catch (Exception e) {
+                return WRONG;
+            }
+        }
+
+        // The exercise's value from the key or by evaluation, null if it has none, SKIP if the
+        // line is not an exercise; the record for the new key is written either way
+        private Fraction valueOf(MappedFile exer, long es, long ee, MappedFile.Slice expr,
+                                 long oldPrint, long oldNum, long oldDen, ByteBuffer records) {
+            // Parse exercise: "1. expr ="
+            long dot = exer.indexOf('.', es, ee);
+            if (dot < 0) {
+                missing++;
+                if (records != null) AnswerKey.putRecord(records, 0, null);
+                return SKIP;
+            }
+            long eq = exer.indexOf('=', dot + 1, ee);
+            long from = exer.skipBlank(dot + 1, eq < 0 ? ee : eq);
+            expr.set(from, exer.trimEnd(from, eq < 0 ? ee : eq));
+
+            Fraction computed = null;
+            long print = oldDen != 0 || records != null ? AnswerKey.fingerprint(expr) : 0;
+            if (oldDen != 0 && print == oldPrint) {
+                computed = new Fraction(oldNum, oldDen);
+            } else {
+                evaluated++;
+                try {
+                    computed = DirectEvaluator.local().evaluate(expr);
+                } catch (Exception e) {
+                    // stays null: the line is wrong whatever the answer
+                }
+            }
+            if (computed == null || computed.isBig()) missing++;
+            if (records != null) AnswerKey.putRecord(records, print, computed);
+            return computed;
+        }
+    }
+
+    public static class Result {
+        final int[] correct;
+        final int[] wrong;
+        // Lines whose value was computed rather than taken from the answer key
+        final long evaluated;
+        // Lines left without a value for the answer key
+        final long missing;
+
+        Result(int[] correct, int[] wrong, long evaluated, long missing) {
+            this.correct = correct;
+            this.wrong = wrong;
+            this.evaluated = evaluated;
+            this.missing = missing;
+        }
+
+        private static Result merge(Chunk[] chunks) {
+            int correctTotal = 0, wrongTotal = 0;
+            long evaluated = 0, missing = 0;
+            for (Chunk c : chunks) {
+                correctTotal += c.correctCount;
+                wrongTotal += c.wrongCount;
+                evaluated += c.evaluated;
+                missing += c.missing;
+            }
+            int[] correct = new int[correctTotal], wrong = new int[wrongTotal];
+            int ci = 0, wi = 0;
+            for (Chunk c : chunks) {
+                System.arraycopy(c.correct, 0, correct, ci, c.correctCount);
+                System.arraycopy(c.wrong, 0, wrong, wi, c.wrongCount);
+                ci += c.correctCount;
+                wi += c.wrongCount;
+            }
+            return new Result(correct, wrong, evaluated, missing);
+        }
+
+        // "Correct: 2 (1, 3)" / "Wrong: 1 (2)", written index by index rather than as one joined string
+        public void write(Path file) throws IOException {
+            StageEvent stage = StageEvent.begin("write report", file);
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file.toFile())))) {
+                writeLine(out, "Correct: ", correct);
+                writeLine(out, "Wrong: ", wrong);
+                if (out.checkError()) throw new IOException("Failed to write " + file);
+            }
+            stage.done(Files.size(file), correct.length + wrong.length);
+        }
+
+        private static void writeLine(PrintWriter out, String label, int[] indices) {
+            out.print(label);
+            out.print(indices.length);
+            out.print(" (");
+            for (int i = 0; i < indices.length; i++) {
+                if (i > 0) out.print(", ");
+                out.print(indices[i]);
+            }
+            out.println(")");
+        }
+    }
+
+    // One stage of a grade run; bytes and lines are what the stage went through, 0 if n/a
+    @Name("com.gdut.GradeStage")
+    @Label("Grade Stage")
+    @Category({"Arithmetic Generator", "Grading"})
+    static class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+        @Label("File")
+        String file;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Lines")
+        long lines;
+
+        static StageEvent begin(String stage, Path file) {
+            StageEvent event = new StageEvent();
+            event.begin();
+            event.stage = stage;
+            event.file = file != null ? file.toString() : null;
+            return event;
+        }
+
+        void done(long bytes, long lines) {
+            end();
+            if (shouldCommit()) {
+                this.bytes = bytes;
+                this.lines = lines;
+                commit();
+            }
+        }
+    }
+
+    // One chunk of CHUNK_LINES exercise/answer pairs, graded on one pool thread
+    @Name("com.gdut.GradeChunk")
+    @Label("Grade Chunk")
+    @Category({"Arithmetic Generator", "Grading"})
+    static class ChunkEvent extends Event {
+        @Label("Chunk")
+        int chunk;
+        @Label("Lines")
+        int lines;
+        @Label("Correct")
+        int correct;
+        @Label("Wrong")
+        int wrong;
+        @Label("Evaluated")
+        int evaluated;
+        @Label("Bytes Scanned")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -1,10 +1,20 @@
 package com.gdut;
 
+import java.io.IOException;
+
 public class Leaf extends Expr {
+    // Operand classes, as buildLeaves lists them
+    static final int NATURAL = 0, PROPER = 1, MIXED = 2, CLASSES = 3;
+
     private Fraction value;
+    private String canonical;
+    private long key;
 
     public Leaf(Fraction value) {
         this.value = value;
+        this.key = value.isBig()
+                ? mix(CanonicalSet.Encoding.BIG_LEAF, value.hashCode())
+                : mix(mix(CanonicalSet.Encoding.LEAF, value.getNumerator()), value.getDenominator());
     }
 
     @Override
@@ -12,9 +22,15 @@ public class Leaf extends Expr {
         return value.toString();
     }
 
+    @Override
+    public void writeInfix(OutputBuffer out, int parentPrec, boolean isRightChild) throws IOException {
+        value.writeTo(out);
+    }
+
     @Override
     public String getCanonical() {
-        return value.toString();
+        if (canonical == null) canonical = value.toString();
+        return canonical;
     }
 
     @Override
@@ -26,4 +42,46 @@ public class Leaf extends Expr {
     public boolean isValid() {
         return true;
     }
+
+    @Override
+    public boolean evalInto(FractionStack st, boolean validate) {
+        st.push(value);
+        return true;
+    }
+
+    @Override
+    public boolean analyze(FractionStack st) {
+        st.push(value);
+        return true;
+    }
+
+    @Override
+    public int census(long[] operators, long[] operands) {
+        operands[operandClass()]++;
+        return 0;
+    }
+
+    int operandClass() {
+        if (value.isBig()) return MIXED;
+        if (value.getDenominator() == 1) return NATURAL;
+        return value.getNumerator() < value.getDenominator() ? PROPER : MIXED;
+    }
+
+    @Override
+    public long key() {
+        return key;
+    }
+
+    @Override
+    public void encodeCanonical(CanonicalSet.Encoding out) {
+        if (value.isBig()) {
+            out.put(CanonicalSet.Encoding.BIG_LEAF);
+            out.putBytes(value.bigNumerator().toByteArray());
+            out.putBytes(value.bigDenominator().toByteArray());
+        } else {
+            out.put(CanonicalSet.Encoding.LEAF);
+            out.putVarLong(value.getNumerator());
+            out.putVarLong(value.getDenominator());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.gdut;
+
+// Allocation-free tokenizer for exercise expressions. Operators and parentheses come back
+// as their own char; number literals (natural numbers, proper fractions "3/4" and mixed
+// numbers "2'3/4") are decoded straight into num/den. A '/' only belongs to a literal when
+// digits touch it on both sides, so "1/2" is one number while "1 / 2" is a division.
+public class Lexer {
+    static final int END = -1, NUMBER = 0;
+
+    private CharSequence s;
+    private int pos, end;
+    private int token;
+    // Valid for NUMBER; big means a part overflowed and only [start, tokenEnd) is usable
+    long num, den;
+    boolean big;
+    int start, tokenEnd;
+
+    Lexer reset(CharSequence s, int from, int to) {
+        this.s = s;
+        this.pos = from;
+        this.end = to;
+        next();
+        return this;
+    }
+
+    CharSequence source() {
+        return s;
+    }
+
+    int token() {
+        return token;
+    }
+
+    int next() {
+        while (pos < end && s.charAt(pos) == ' ') pos++;
+        if (pos >= end) return token = END;
+        char ch = s.charAt(pos);
+        if (ch == '+' || ch == '-' || ch == '*' || ch == '/' || ch == '(' || ch == ')') {
+            pos++;
+            return token = ch;
+        }
+        if (isDigit(ch)) {
+            scanNumber();
+            return token = NUMBER;
+        }
+        throw new RuntimeException("Unexpected character '" + ch + "' at " + pos);
+    }
+
+    private void scanNumber() {
+        start = pos;
+        big = false;
+        long a = digits();
+        if (pos < end && s.charAt(pos) == '\'') {
+            pos++;
+            long b = digits();
+            if (pos >= end || s.charAt(pos) != '/') throw new RuntimeException("Expected / in mixed number at " + pos);
+            pos++;
+            long c = digits();
+            if (!big && c != 0 && a <= (Long.MAX_VALUE - b) / c) {
+                num = a * c + b;
+            } else {
+                big = true;
+            }
+            den = c;
+        } else if (pos + 1 < end && s.charAt(pos) == '/' && isDigit(s.charAt(pos + 1))) {
+            pos++;
+            num = a;
+            den = digits();
+        } else {
+            num = a;
+            den = 1;
+        }
+        tokenEnd = pos;
+    }
+
+    private long digits() {
+        int from = pos;
+        long v = 0;
+        while (pos < end && isDigit(s.charAt(pos))) {
+            int d = s.charAt(pos++) - '0';
+            if (v > (Long.MAX_VALUE - d) / 10) {
+                big = true;
+            } else {
+                v = v * 10 + d;
+            }
+        }
+        if (pos == from) throw new RuntimeException("Expected digits at " + pos);
+        return v;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
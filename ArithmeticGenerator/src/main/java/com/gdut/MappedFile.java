@@ -0,0 +1,145 @@
+package com.gdut;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Read-only memory map of a whole file, in 1GB segments so files past 2GB work too.
+// Grading scans lines straight out of the page cache instead of decoding them into Strings.
+public class MappedFile {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    public MappedFile(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = ch.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long base = (long) i << SEGMENT_BITS;
+                segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, base, Math.min(SEGMENT_MASK + 1, size - base));
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte byteAt(long pos) {
+        return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & SEGMENT_MASK));
+    }
+
+    // pos must be a multiple of 8, so the value never spans two segments
+    long longAt(long pos) {
+        return segments[(int) (pos >>> SEGMENT_BITS)].getLong((int) (pos & SEGMENT_MASK));
+    }
+
+    // Bulk copy of [pos, pos + len), which may span segments
+    void read(long pos, byte[] dst, int off, int len) {
+        while (len > 0) {
+            MappedByteBuffer seg = segments[(int) (pos >>> SEGMENT_BITS)];
+            int at = (int) (pos & SEGMENT_MASK);
+            int n = Math.min(len, seg.limit() - at);
+            seg.get(at, dst, off, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    // Offset of the '\n' ending the line that starts at pos, or size() for the last line
+    long lineEnd(long pos) {
+        while (pos < size && byteAt(pos) != '\n') pos++;
+        return pos;
+    }
+
+    long indexOf(char c, long from, long to) {
+        for (long i = from; i < to; i++) {
+            if (byteAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    // First non-blank offset in [from, to), or to; blank matches String.trim (<= ' ')
+    long skipBlank(long from, long to) {
+        while (from < to && (byteAt(from) & 0xff) <= ' ') from++;
+        return from;
+    }
+
+    long trimEnd(long from, long to) {
+        while (to > from && (byteAt(to - 1) & 0xff) <= ' ') to--;
+        return to;
+    }
+
+    // Start offset of every every-th line (0, every, 2*every, ...) plus the line count,
+    // counted the way Files.readAllLines does: a final '\n' does not open another line
+    LineIndex index(int every) {
+        long[] starts = new long[16];
+        int k = 0;
+        long lines = 0;
+        for (long pos = 0; pos < size; pos = lineEnd(pos) + 1) {
+            if (lines % every == 0) {
+                if (k == starts.length) starts = Arrays.copyOf(starts, k * 2);
+                starts[k++] = pos;
+            }
+            lines++;
+        }
+        return new LineIndex(Arrays.copyOf(starts, k), lines);
+    }
+
+    static class LineIndex {
+        final long[] starts;
+        final long lines;
+
+        LineIndex(long[] starts, long lines) {
+            this.starts = starts;
+            this.lines = lines;
+        }
+    }
+
+    // Reusable CharSequence window over the file; bytes are read as ISO-8859-1, which is
+    // exact for the ASCII the generator writes
+    static class Slice implements CharSequence {
+        private final MappedFile file;
+        private long from;
+        private int length;
+
+        Slice(MappedFile file) {
+            this.file = file;
+        }
+
+        Slice set(long from, long to) {
+            this.from = from;
+            this.length = (int) (to - from);
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (file.byteAt(from + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Slice(file).set(from + start, from + end);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) sb.append(charAt(i));
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.gdut;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Command-line options shared by generation and grading mode
+public class Options {
+    int numProblems = 10;
+    int range = -1;
+    int threads = 1;
+    // Grading and gzip compression parallelize by default; -t sets both
+    int gradeThreads = Runtime.getRuntime().availableProcessors();
+    Long seed;
+    boolean usePool;
+    // Generation: fit the random-tree sampler to the acceptance seen so far (not with --pool)
+    boolean adaptive;
+    // Generation: print candidate, rejection, depth and timing counters to stderr
+    boolean stats;
+    // Generation: expose those counters live over JMX as com.gdut:type=GenerationStats
+    boolean jmx;
+    // Generation: keep the dedupe set's canonical encodings off the Java heap
+    boolean offHeap;
+    // Generation: output is written to disk in batches of this many bytes
+    int flushBytes = OutputBuffer.DEFAULT_FLUSH;
+    // Generation: write Exercises.txt.gz/Answers.txt.gz as blocks of flushBytes
+    boolean gzip;
+    // Generation: also write the random-access Exercises.bank
+    boolean writeBank;
+    // Generation: also write Exercises.txt.key
+    boolean writeKey;
+    // Grading: read and refresh the <exercises>.key answer cache
+    boolean useKey;
+    // Grading: compare answers to a complete key without reading the exercises
+    boolean trustKey;
+    Path outputDir = Paths.get("");
+    String exerciseFile;
+    String answerFile;
+
+    static Options parse(String[] args) {
+        Options opts = new Options();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-n") && i + 1 < args.length) {
+                opts.numProblems = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-r") && i + 1 < args.length) {
+                opts.range = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-t") && i + 1 < args.length) {
+                opts.threads = Integer.parseInt(args[++i]);
+                opts.gradeThreads = opts.threads;
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                opts.seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--pool")) {
+                opts.usePool = true;
+            } else if (args[i].equals("--adaptive")) {
+                opts.adaptive = true;
+            } else if (args[i].equals("--stats")) {
+                opts.stats = true;
+            } else if (args[i].equals("--jmx")) {
+                opts.jmx = true;
+            } else if (args[i].equals("--offheap")) {
+                opts.offHeap = true;
+            } else if (args[i].equals("--flush") && i + 1 < args.length) {
+                opts.flushBytes = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-z")) {
+                opts.gzip = true;
+            } else if (args[i].equals("--bank")) {
+                opts.writeBank = true;
+            } else if (args[i].equals("--key")) {
+                opts.writeKey = true;
+            } else if (args[i].equals("--cache")) {
+                opts.useKey = true;
+            } else if (args[i].equals("--trust")) {
+                opts.trustKey = true;
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                opts.outputDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-e") && i + 1 < args.length) {
+                opts.exerciseFile = args[++i];
+            } else if (args[i].equals("-a") && i + 1 < args.length) {
+                opts.answerFile = args[++i];
+            }
+        }
+        return opts;
+    }
+
+    // Without --seed every run still has a seed, it is just not reproducible
+    long seedOrRandom() {
+        return seed != null ? seed : ThreadLocalRandom.current().nextLong();
+    }
+}
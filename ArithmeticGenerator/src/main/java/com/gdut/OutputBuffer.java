@@ -0,0 +1,135 @@
+package com.gdut;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Buffered ASCII output straight to a FileChannel: callers append chars and decimal numbers
+// into one reusable byte buffer that is written out whenever flushBytes have accumulated, so
+// formatting a line builds no Strings. Can keep an FNV-1a hash of a stretch of output (the
+// answer-key fingerprint of an exercise, see AnswerKey.fingerprint). For a .gz file every
+// full buffer becomes one independently compressed BlockGzip member instead.
+public class OutputBuffer implements Closeable {
+    static final int DEFAULT_FLUSH = 1 << 20;
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes();
+
+    private final FileChannel ch;
+    private final boolean ownsChannel;
+    private final long base;
+    private long flushed;
+    private final BlockGzip.Writer gzip;
+    private byte[] buf;
+    private final ByteBuffer view;
+    private final byte[] digits = new byte[20];
+    private int pos;
+    private boolean hashing;
+    private long hash;
+
+    public OutputBuffer(Path file, int flushBytes) throws IOException {
+        this(file, flushBytes, 1);
+    }
+
+    // threads only matters for .gz output: how many blocks are compressed at once
+    public OutputBuffer(Path file, int flushBytes, int threads) throws IOException {
+        this.buf = new byte[Math.max(64, flushBytes)];
+        if (BlockGzip.isGzip(file)) {
+            this.ch = null;
+            this.gzip = new BlockGzip.Writer(file, threads);
+            this.view = null;
+        } else {
+            this.ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.gzip = null;
+            this.view = ByteBuffer.wrap(buf);
+        }
+        this.ownsChannel = true;
+        this.base = 0;
+    }
+
+    // Writes into a region of a channel owned by someone else, starting at base
+    OutputBuffer(FileChannel ch, long base, int flushBytes) {
+        this.buf = new byte[Math.max(64, flushBytes)];
+        this.ch = ch;
+        this.ownsChannel = false;
+        this.base = base;
+        this.gzip = null;
+        this.view = ByteBuffer.wrap(buf);
+    }
+
+    // Bytes written so far, flushed or not
+    long size() {
+        return flushed + pos;
+    }
+
+    public OutputBuffer put(char c) throws IOException {
+        if (pos == buf.length) flush();
+        buf[pos++] = (byte) c;
+        if (hashing) hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+        return this;
+    }
+
+    public OutputBuffer put(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+        return this;
+    }
+
+    public OutputBuffer putLong(long v) throws IOException {
+        if (v == Long.MIN_VALUE) return put(Long.toString(v));
+        if (v < 0) {
+            put('-');
+            v = -v;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        while (n > 0) put((char) digits[--n]);
+        return this;
+    }
+
+    public OutputBuffer newLine() throws IOException {
+        for (byte b : NEWLINE) put((char) b);
+        return this;
+    }
+
+    void startHash() {
+        hashing = true;
+        hash = 0xcbf29ce484222325L;
+    }
+
+    long endHash() {
+        hashing = false;
+        return hash;
+    }
+
+    public void flush() throws IOException {
+        if (gzip != null) {
+            if (pos > 0) {
+                gzip.write(buf, pos);  // the block now belongs to the compressor
+                buf = new byte[buf.length];
+            }
+        } else {
+            view.clear().limit(pos);
+            while (view.hasRemaining()) ch.write(view, base + flushed + view.position());
+        }
+        flushed += pos;
+        pos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (gzip != null) {
+                gzip.close();
+            } else if (ownsChannel) {
+                ch.close();
+            }
+        }
+    }
+}
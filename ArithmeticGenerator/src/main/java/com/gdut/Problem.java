@@ -0,0 +1,12 @@
+package com.gdut;
+
+// A generated candidate together with what was computed for it on the worker
+public class Problem {
+    final Expr expr;
+    final Fraction value;
+
+    public Problem(Expr expr, Fraction value) {
+        this.expr = expr;
+        this.value = value;
+    }
+}
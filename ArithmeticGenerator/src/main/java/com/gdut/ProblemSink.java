@@ -0,0 +1,33 @@
+package com.gdut;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Receives accepted problems in their final order; the n-th call is problem number n
+public abstract class ProblemSink implements Closeable {
+    public abstract void accept(Problem p) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    // Sends every problem to both sinks, in order
+    static ProblemSink both(ProblemSink first, ProblemSink second) {
+        return new ProblemSink() {
+            @Override
+            public void accept(Problem p) throws IOException {
+                first.accept(p);
+                second.accept(p);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    first.close();
+                } finally {
+                    second.close();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.gdut;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Hands problems to a writer thread through a bounded queue, so formatting and file I/O
+// overlap generation while at most CAPACITY problems are held in memory
+public class QueuedSink extends ProblemSink {
+    static final int CAPACITY = 8192;
+    private static final Problem END = new Problem(null, null);
+
+    private final ProblemSink target;
+    private final BlockingQueue<Problem> queue;
+    private final Thread writer;
+    private volatile Throwable failure;
+
+    public QueuedSink(ProblemSink target, int capacity) {
+        this.target = target;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drain, "problem-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private void drain() {
+        try {
+            for (Problem p = queue.take(); p != END; p = queue.take()) {
+                target.accept(p);
+            }
+        } catch (Throwable t) {
+            failure = t;
+            queue.clear();  // unblock a producer waiting on a full queue
+        }
+    }
+
+    @Override
+    public void accept(Problem p) throws IOException {
+        checkFailure();
+        try {
+            queue.put(p);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing a problem", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (failure == null) queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing problems", e);
+        } finally {
+            target.close();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t instanceof IOException) throw (IOException) t;
+        if (t != null) throw new IOException("Problem writer failed", t);
+    }
+}
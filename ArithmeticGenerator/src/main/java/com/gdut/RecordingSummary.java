@@ -0,0 +1,118 @@
+package com.gdut;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+// Per-stage throughput from a JFR recording of a grade or generate run:
+//   java -XX:StartFlightRecording=filename=grade.jfr -cp ... com.gdut.ArithmeticGenerator -e ... -a ...
+//   java -cp ... com.gdut.RecordingSummary grade.jfr
+// Stages are listed in the order they first ran. Chunk and batch times are summed over
+// the pool threads; "parallelism" is that sum over the wall time the chunks spanned.
+public class RecordingSummary {
+    private static class Totals {
+        long count, nanos, bytes, lines, evaluated;
+        Instant first, last;
+        final List<Long> each = new ArrayList<>();
+
+        void add(RecordedEvent e, long bytes, long lines) {
+            count++;
+            nanos += e.getDuration().toNanos();
+            this.bytes += bytes;
+            this.lines += lines;
+            each.add(e.getDuration().toNanos());
+            if (first == null || e.getStartTime().isBefore(first)) first = e.getStartTime();
+            if (last == null || e.getEndTime().isAfter(last)) last = e.getEndTime();
+        }
+
+        long percentile(double p) {
+            long[] sorted = each.stream().mapToLong(Long::longValue).sorted().toArray();
+            return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, p * sorted.length)];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java com.gdut.RecordingSummary <recording.jfr>");
+            return;
+        }
+        summarize(Paths.get(args[0]));
+    }
+
+    static void summarize(Path recording) throws IOException {
+        Map<String, Totals> stages = new LinkedHashMap<>();
+        Totals chunks = new Totals(), batches = new Totals();
+        RecordedEvent generation = null;
+        for (RecordedEvent e : RecordingFile.readAllEvents(recording)) {
+            switch (e.getEventType().getName()) {
+                case "com.gdut.GradeStage" -> stages.computeIfAbsent(e.getString("stage"), k -> new Totals())
+                        .add(e, e.getLong("bytes"), e.getLong("lines"));
+                case "com.gdut.GradeChunk" -> {
+                    chunks.add(e, e.getLong("bytes"), e.getInt("lines"));
+                    chunks.evaluated += e.getInt("evaluated");
+                }
+                case "com.gdut.GenerationBatch" -> {
+                    batches.add(e, 0, e.getLong("attempts"));
+                    batches.evaluated += e.getLong("valid");
+                }
+                case "com.gdut.Generation" -> generation = e;
+                default -> {
+                }
+            }
+        }
+
+        if (!stages.isEmpty()) {
+            System.out.printf("%-16s %6s %10s %12s %12s %12s%n", "grade stage", "runs", "ms", "MB", "MB/s", "lines/s");
+            for (Map.Entry<String, Totals> s : stages.entrySet()) {
+                Totals t = s.getValue();
+                System.out.printf("%-16s %6d %10.1f %12.1f %12s %12s%n", s.getKey(), t.count, t.nanos / 1e6,
+                        t.bytes / 1e6, rate(t.bytes / 1e6, t.nanos), rate(t.lines, t.nanos));
+            }
+        }
+        if (chunks.count > 0) {
+            System.out.printf("chunks: %d, %d lines (%d evaluated, %d from the key), %.1f MB scanned%n", chunks.count,
+                    chunks.lines, chunks.evaluated, chunks.lines - chunks.evaluated, chunks.bytes / 1e6);
+            System.out.printf("  per thread: %s lines/s, %s MB/s; chunk ms p50 %.2f, p99 %.2f, max %.2f; parallelism %.1f%n",
+                    rate(chunks.lines, chunks.nanos), rate(chunks.bytes / 1e6, chunks.nanos), chunks.percentile(0.5) / 1e6,
+                    chunks.percentile(0.99) / 1e6, chunks.percentile(1) / 1e6, parallelism(chunks));
+        }
+        if (batches.count > 0) {
+            System.out.printf("generation batches: %d, %d candidates (%d valid)%n", batches.count, batches.lines,
+                    batches.evaluated);
+            System.out.printf("  per worker: %s candidates/s; batch ms p50 %.2f, p99 %.2f, max %.2f; parallelism %.1f%n",
+                    rate(batches.lines, batches.nanos), batches.percentile(0.5) / 1e6, batches.percentile(0.99) / 1e6,
+                    batches.percentile(1) / 1e6, parallelism(batches));
+        }
+        if (generation != null) {
+            long wall = generation.getDuration("wallTime").toNanos();
+            System.out.printf("generation: %d accepted of %d candidates in %.1f ms (%s problems/s); dedupe %.1f ms, "
+                            + "output %.1f ms, waiting %.1f ms%n", generation.getLong("accepted"),
+                    generation.getLong("attempts"), wall / 1e6, rate(generation.getLong("accepted"), wall),
+                    ms(generation, "dedupeTime"), ms(generation, "outputTime"), ms(generation, "waitTime"));
+        }
+        if (stages.isEmpty() && chunks.count == 0 && batches.count == 0 && generation == null) {
+            System.out.println("No com.gdut events in " + recording);
+        }
+    }
+
+    private static String rate(double amount, long nanos) {
+        return nanos == 0 || amount == 0 ? "-" : String.format("%.0f", amount / (nanos / 1e9));
+    }
+
+    private static double parallelism(Totals t) {
+        long span = Duration.between(t.first, t.last).toNanos();
+        return span == 0 ? 1 : (double) t.nanos / span;
+    }
+
+    private static double ms(RecordedEvent e, String field) {
+        return e.getDuration(field).toNanos() / 1e6;
+    }
+}
@@ -0,0 +1,35 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveControllerTest {
+    @Test
+    void testSizeCostsFromLiveCounters() {  // 用例43: 规模代价取自实时计数（节点数+判重探测）；探测代价在2~8之间变化时拟合的规模分布基本不变
+        for (int range : new int[]{10, 20, 100}) {
+            GenerationEngine engine = new GenerationEngine(ArithmeticGenerator.buildLeaves(range), 3L, 1);
+            engine.run(100000);
+            GenerationStats s = engine.stats();
+
+            // 通过规则检查的候选都去判重：接受数+重复数，加上最后一批未用完的部分
+            long valid = 0;
+            for (long v : s.validSize) valid += v;
+            long probed = s.accepted + s.rejected[GenerationStats.DUPLICATE];
+            assertTrue(valid >= probed && valid - probed < GenerationEngine.BATCH_ATTEMPTS, "valid " + valid);
+
+            double[] cost = AdaptiveController.sizeCosts(s.candidateSize, s.validSize, AdaptiveController.PROBE_NODES);
+            for (int k = 1; k < cost.length; k++) assertTrue(cost[k] > cost[k - 1]);
+
+            double[] low = AdaptiveController.fit(null, s.acceptedSize, s.candidateSize,
+                    AdaptiveController.sizeCosts(s.candidateSize, s.validSize, 2));
+            double[] high = AdaptiveController.fit(null, s.acceptedSize, s.candidateSize,
+                    AdaptiveController.sizeCosts(s.candidateSize, s.validSize, 8));
+            for (int k = 0; k < low.length; k++) {
+                assertEquals(low[k], high[k], 0.12, "-r " + range + ", " + k + " operators");
+                for (int j = 0; j < low.length; j++) {
+                    assertEquals(low[k] > low[j], high[k] > high[j], "-r " + range + ": order of " + k + " and " + j);
+                }
+            }
+        }
+    }
+}
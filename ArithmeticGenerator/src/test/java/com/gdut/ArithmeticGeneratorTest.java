@@ -3,9 +3,16 @@ package com.gdut;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ArithmeticGeneratorTest {
@@ -32,6 +39,175 @@ public class ArithmeticGeneratorTest {
         assertTrue(grade.get(1).contains("Wrong: 1 (2)"));
     }
 
+    @Test
+    void testGenerateParallelExactCount() {  // 用例11: 多线程生成恰好n道且互不重复
+        List<Problem> problems = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 42L, 4).run(500);
+        assertEquals(500, problems.size());
+        Set<String> canonicals = new HashSet<>();
+        for (Problem p : problems) {
+            assertTrue(p.expr.isValid());
+            assertEquals(p.expr.eval(), p.value);
+            assertTrue(canonicals.add(p.expr.getCanonical()));  // 规范式不重复
+        }
+    }
+
+    @Test
+    void testSeedReproducibleAcrossThreads() throws IOException {  // 用例12: 相同种子单线程与多线程输出逐字节一致
+        Path single = Files.createDirectory(tempDir.resolve("single"));
+        Path multi = Files.createDirectory(tempDir.resolve("multi"));
+        Options opts = new Options();
+        opts.numProblems = 300;
+        opts.range = 10;
+        opts.seed = 7L;
+        opts.outputDir = single;
+        ArithmeticGenerator.generate(opts);
+        opts.threads = 4;
+        opts.outputDir = multi;
+        ArithmeticGenerator.generate(opts);
+        assertArrayEquals(Files.readAllBytes(single.resolve("Exercises.txt")), Files.readAllBytes(multi.resolve("Exercises.txt")));
+        assertArrayEquals(Files.readAllBytes(single.resolve("Answers.txt")), Files.readAllBytes(multi.resolve("Answers.txt")));
+    }
+
+    @Test
+    void testStreamingMatchesInMemory() throws IOException {  // 用例26: 经有界队列流式写出与内存生成的题目顺序一致
+        List<Fraction> leaves = ArithmeticGenerator.buildLeaves(10);
+        List<Problem> expected = new GenerationEngine(leaves, 11L, 2).run(400);
+        List<String> streamed = new java.util.ArrayList<>();
+        int count;
+        try (ProblemSink sink = new QueuedSink(new ProblemSink() {
+            @Override
+            public void accept(Problem p) {
+                streamed.add(p.expr.toInfix() + " = " + p.value);
+            }
+        }, 4)) {  // 很小的队列，迫使生成端阻塞等待写出端
+            count = new GenerationEngine(leaves, 11L, 2).run(400, sink);
+        }
+        assertEquals(400, count);
+        assertEquals(400, streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).expr.toInfix() + " = " + expected.get(i).value, streamed.get(i));
+        }
+    }
+
+    @Test
+    void testBufferedOutputMatchesToInfix() throws IOException {  // 用例34: 字节缓冲输出与 toInfix/toString 拼接结果逐行一致，与刷盘批量大小无关
+        Path small = Files.createDirectory(tempDir.resolve("small"));
+        Path large = Files.createDirectory(tempDir.resolve("large"));
+        Options opts = new Options();
+        opts.numProblems = 2000;
+        opts.range = 30;
+        opts.seed = 21L;
+        opts.flushBytes = 1;  // 每次都写满缓冲区再刷盘
+        opts.outputDir = small;
+        ArithmeticGenerator.generate(opts);
+        opts.flushBytes = OutputBuffer.DEFAULT_FLUSH;
+        opts.outputDir = large;
+        ArithmeticGenerator.generate(opts);
+        assertArrayEquals(Files.readAllBytes(small.resolve("Exercises.txt")), Files.readAllBytes(large.resolve("Exercises.txt")));
+        assertArrayEquals(Files.readAllBytes(small.resolve("Answers.txt")), Files.readAllBytes(large.resolve("Answers.txt")));
+
+        List<String> exercises = Files.readAllLines(large.resolve("Exercises.txt"));
+        List<String> answers = Files.readAllLines(large.resolve("Answers.txt"));
+        for (int i = 0; i < exercises.size(); i++) {
+            String expr = exercises.get(i).substring((i + 1 + ". ").length(), exercises.get(i).length() - 2);
+            Expr parsed = ArithmeticGenerator.Parser.local().reset(expr).parse();
+            assertEquals(exercises.get(i), (i + 1) + ". " + parsed.toInfix() + " =");
+            assertEquals(answers.get(i), (i + 1) + ". " + parsed.eval());
+        }
+    }
+
+    @Test
+    void testGenerationStats() {  // 用例38: 统计计数自洽（拒绝原因、深度直方图），且与线程数无关
+        GenerationEngine single = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 8L, 1);
+        GenerationEngine multi = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 8L, 3);
+        assertEquals(3000, single.run(3000).size());
+        multi.run(3000);
+        GenerationStats s = single.stats(), m = multi.stats();
+
+        assertEquals(3000, s.accepted);
+        long rejected = 0;
+        for (long r : s.rejected) rejected += r;
+        long leftover = s.attempts - s.accepted - rejected;
+        assertTrue(leftover >= 0 && leftover < GenerationEngine.BATCH_ATTEMPTS, "leftover " + leftover);
+        assertTrue(s.rejected[GenerationStats.NEGATIVE] > 0);
+        assertTrue(s.rejected[GenerationStats.DUPLICATE] > 0);
+        long candidates = 0, accepted = 0;
+        for (int d = 0; d <= GenerationStats.MAX_DEPTH; d++) {
+            candidates += s.candidateDepth[d];
+            accepted += s.acceptedDepth[d];
+        }
+        assertEquals(s.attempts, candidates);
+        assertEquals(s.accepted, accepted);
+
+        assertEquals(s.attempts, m.attempts);
+        assertArrayEquals(s.rejected, m.rejected);
+        assertArrayEquals(s.acceptedDepth, m.acceptedDepth);
+    }
+
+    @Test
+    void testJmxReadsPublishedSnapshot() throws Exception {  // 用例44: JMX读取合并阶段发布的快照：运行中读到的计数自洽且单调，结束后与总数一致
+        GenerationEngine engine = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 8L, 3);
+        GenerationStats s = engine.stats();
+        s.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(GenerationStats.OBJECT_NAME);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                long last = 0;
+                while (!done.get()) {
+                    // 两次读取可能来自不同快照：先读接受数，之后的快照里候选数只会更大
+                    long accepted = (Long) server.getAttribute(name, "Accepted");
+                    long attempts = (Long) server.getAttribute(name, "Attempts");
+                    if (attempts < last || accepted > attempts) error.set(attempts + " after " + last + ", accepted " + accepted);
+                    last = attempts;
+                }
+            } catch (Exception e) {
+                error.set(e.toString());
+            }
+        });
+        reader.start();
+        engine.run(20000);
+        done.set(true);
+        reader.join();
+        assertNull(error.get());
+
+        assertEquals(s.attempts, server.getAttribute(name, "Attempts"));
+        assertEquals(20000L, server.getAttribute(name, "Accepted"));
+        assertEquals(s.rejected[GenerationStats.DUPLICATE], server.getAttribute(name, "RejectedDuplicate"));
+        assertArrayEquals(s.acceptedDepth, (long[]) server.getAttribute(name, "AcceptedDepthHistogram"));
+        s.attempts++;  // 未发布的改动对JMX不可见
+        assertEquals(s.attempts - 1, server.getAttribute(name, "Attempts"));
+        server.unregisterMBean(name);
+    }
+
+    @Test
+    void testAdaptiveGeneration() {  // 用例40: --adaptive 按已合并批次调整分布：输出与线程数无关、题目合法不重复、接受率高于固定分布
+        List<Fraction> leaves = ArithmeticGenerator.buildLeaves(20);
+        GenerationEngine fixed = new GenerationEngine(leaves, 11L, 1);
+        GenerationEngine single = new GenerationEngine(leaves, 11L, 1, false, false, true);
+        GenerationEngine multi = new GenerationEngine(leaves, 11L, 3, false, false, true);
+        fixed.run(100000);
+        List<Problem> a = single.run(100000);
+        List<Problem> b = multi.run(100000);
+
+        assertEquals(100000, a.size());
+        assertEquals(a.size(), b.size());
+        Set<String> canonicals = new HashSet<>();
+        for (int i = 0; i < a.size(); i++) {
+            assertEquals(a.get(i).expr.toInfix(), b.get(i).expr.toInfix());
+            assertTrue(a.get(i).expr.isValid());
+            assertEquals(a.get(i).value, a.get(i).expr.eval());
+            assertTrue(canonicals.add(a.get(i).expr.getCanonical()));
+        }
+        // Past the first LAG epochs the sampler has moved away from generateExpr's shape
+        assertTrue(single.attempts() > (long) AdaptiveController.LAG * AdaptiveController.EPOCH_BATCHES
+                * GenerationEngine.BATCH_ATTEMPTS);
+        assertTrue(single.attempts() < fixed.attempts(), single.attempts() + " vs " + fixed.attempts());
+        assertArrayEquals(single.stats().acceptedOperands, multi.stats().acceptedOperands);
+    }
+
     @Test
     void testNoRParameter() {  // 用例10: 无-r参数错误
         // 模拟main无-r，检查System.err（简化：直接跑main看控制台）
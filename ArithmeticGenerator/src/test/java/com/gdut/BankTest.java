@@ -0,0 +1,48 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRandomAccessAndFind() throws IOException {  // 用例36: 题库按序号、区间随机读取，按规范式O(1)查找
+        Options opts = new Options();
+        opts.numProblems = 3000;
+        opts.range = 10;
+        opts.seed = 12L;
+        opts.writeBank = true;
+        opts.outputDir = tempDir;
+        ArithmeticGenerator.generate(opts);
+        List<String> exercises = Files.readAllLines(tempDir.resolve("Exercises.txt"));
+        List<String> answers = Files.readAllLines(tempDir.resolve("Answers.txt"));
+
+        Bank bank = new Bank(tempDir.resolve("Exercises.bank"));
+        assertEquals(3000, bank.size());
+        for (int k : new int[]{0, 1, 1499, 2999}) {
+            Problem p = bank.get(k);
+            assertEquals(exercises.get(k), (k + 1) + ". " + p.expr.toInfix() + " =");
+            assertEquals(answers.get(k), (k + 1) + ". " + p.value);
+        }
+        List<Problem> page = bank.range(100, 120);
+        assertEquals(20, page.size());
+        assertEquals(exercises.get(110), "111. " + page.get(10).expr.toInfix() + " =");
+
+        // 交换可交换运算的操作数后仍能找到同一道题
+        for (int k = 0; k < 3000; k += 37) {
+            String infix = bank.get(k).expr.toInfix();
+            Expr e = ArithmeticGenerator.Parser.local().reset(infix).parse();
+            assertEquals(k, bank.find(e));
+        }
+        assertEquals(bank.find(ArithmeticGenerator.Parser.local().reset("1 + 2").parse()),
+                bank.find(ArithmeticGenerator.Parser.local().reset("2 + 1").parse()));
+        assertEquals(-1, bank.find(ArithmeticGenerator.Parser.local().reset("123456 + 7").parse()));
+    }
+}
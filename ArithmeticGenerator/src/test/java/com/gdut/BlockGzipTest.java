@@ -0,0 +1,61 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockGzipTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBlockGzipRoundTrip() throws IOException {  // 用例35: 分块gzip输出可被标准gzip读取，分块并行解压与未压缩输出一致
+        Path plain = Files.createDirectory(tempDir.resolve("plain"));
+        Path gz = Files.createDirectory(tempDir.resolve("gz"));
+        Options opts = new Options();
+        opts.numProblems = 5000;
+        opts.range = 10;
+        opts.seed = 8L;
+        opts.flushBytes = 4096;  // 小块，产生许多独立压缩的成员
+        opts.outputDir = plain;
+        ArithmeticGenerator.generate(opts);
+        opts.gzip = true;
+        opts.outputDir = gz;
+        ArithmeticGenerator.generate(opts);
+
+        byte[] expected = Files.readAllBytes(plain.resolve("Exercises.txt"));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz.resolve("Exercises.txt.gz")))) {
+            assertArrayEquals(expected, in.readAllBytes());  // 多成员标准gzip
+        }
+        Path inflated = tempDir.resolve("inflated.txt");
+        BlockGzip.inflate(gz.resolve("Exercises.txt.gz"), inflated, 3);
+        assertArrayEquals(expected, Files.readAllBytes(inflated));
+
+        Grader.Result result = new Grader(2).grade(gz.resolve("Exercises.txt.gz"), gz.resolve("Answers.txt.gz"));
+        assertEquals(5000, result.correct.length);
+        assertEquals(0, result.wrong.length);
+    }
+
+    @Test
+    void testEmptyOutputIsValidGzip() throws IOException {  // 用例47: 0道题时压缩输出仍是合法gzip（一个空成员），而不是0字节文件
+        Options opts = new Options();
+        opts.numProblems = 0;
+        opts.range = 10;
+        opts.gzip = true;
+        opts.outputDir = tempDir;
+        ArithmeticGenerator.generate(opts);
+        Path gz = tempDir.resolve("Exercises.txt.gz");
+        assertTrue(Files.size(gz) > 0);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+            assertEquals(0, in.readAllBytes().length);
+        }
+        Path inflated = tempDir.resolve("inflated.txt");
+        BlockGzip.inflate(gz, inflated, 2);
+        assertEquals(0, Files.size(inflated));
+    }
+}
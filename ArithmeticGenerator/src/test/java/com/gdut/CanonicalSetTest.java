@@ -0,0 +1,125 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CanonicalSetTest {
+    private static Leaf leaf(long n) {
+        return new Leaf(new Fraction(n, 1));
+    }
+
+    @Test
+    void testCommutativeDuplicatesRejected() {  // 用例18: 交换律等价的表达式键相同且被判重
+        CanonicalSet set = new CanonicalSet();
+        Expr e1 = new Binary("+", new Binary("*", leaf(2), leaf(3)), leaf(1));
+        Expr e2 = new Binary("+", leaf(1), new Binary("*", leaf(3), leaf(2)));
+        Expr e3 = new Binary("-", new Binary("*", leaf(2), leaf(3)), leaf(1));
+        assertEquals(e1.key(), e2.key());
+        assertTrue(set.add(e1));
+        assertFalse(set.add(e2));
+        assertTrue(set.add(e3));
+        assertTrue(set.contains(e2));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void testKeyCollisionVerified() {  // 用例19: 64位键碰撞时按字节编码校验，不误判重复
+        CanonicalSet set = new CanonicalSet();
+        Expr a = new Binary("+", leaf(1), leaf(2)) {
+            @Override
+            public long key() {
+                return 42;
+            }
+        };
+        Expr b = new Binary("-", leaf(5), leaf(4)) {
+            @Override
+            public long key() {
+                return 42;
+            }
+        };
+        assertTrue(set.add(a));
+        assertTrue(set.add(b));
+        assertFalse(set.add(a));
+    }
+
+    @Test
+    void testAgreesWithStringCanonicals() {  // 用例20: 与字符串规范式判重结果一致（含扩容）
+        List<Leaf> leaves = new ArrayList<>();
+        for (Fraction f : ArithmeticGenerator.buildLeaves(4)) leaves.add(new Leaf(f));
+        SplittableRandom rand = new SplittableRandom(11);
+        CanonicalSet set = new CanonicalSet(16);
+        Set<String> strings = new HashSet<>();
+        for (int i = 0; i < 50000; i++) {
+            Expr e = ArithmeticGenerator.generateExpr(3, leaves, rand);
+            assertEquals(strings.add(e.getCanonical()), set.add(e));
+        }
+        assertEquals(strings.size(), set.size());
+    }
+
+    @Test
+    void testBloomFilterAndOffHeapArena() {  // 用例37: 布隆过滤器无漏判、误判率低；堆外存储判重结果与堆内一致
+        BloomFilter filter = new BloomFilter(100000, 12);
+        SplittableRandom rand = new SplittableRandom(5);
+        long[] present = new long[100000];
+        for (int i = 0; i < present.length; i++) {
+            present[i] = rand.nextLong();
+            filter.put(present[i]);
+        }
+        for (long key : present) assertTrue(filter.mightContain(key));
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(rand.nextLong())) falsePositives++;
+        }
+        assertTrue(falsePositives < 2000, "false positives: " + falsePositives);
+
+        List<Leaf> leaves = new ArrayList<>();
+        for (Fraction f : ArithmeticGenerator.buildLeaves(5)) leaves.add(new Leaf(f));
+        CanonicalSet heap = new CanonicalSet(16);
+        CanonicalSet offHeap = new CanonicalSet(16, true);
+        for (int i = 0; i < 50000; i++) {
+            Expr e = ArithmeticGenerator.generateExpr(3, leaves, rand);
+            boolean added = heap.add(e);
+            assertEquals(added, offHeap.add(e));
+            assertTrue(offHeap.contains(e));
+        }
+        assertEquals(heap.size(), offHeap.size());
+    }
+
+    @Test
+    void testOffHeapSlotTable() {  // 用例46: --offheap时槽表也在堆外（跨多个直接缓冲区分页），判重结果与堆内一致
+        List<Leaf> leaves = new ArrayList<>();
+        for (Fraction f : ArithmeticGenerator.buildLeaves(20)) leaves.add(new Leaf(f));
+        CanonicalSet heap = new CanonicalSet(16);
+        CanonicalSet offHeap = new CanonicalSet(3_000_000, true);  // 2^23个槽，两个分页
+        assertEquals(0, offHeap.tableHeapBytes());
+        assertTrue(heap.tableHeapBytes() > 0);
+        SplittableRandom rand = new SplittableRandom(9);
+        for (int i = 0; i < 100000; i++) {
+            Expr e = ArithmeticGenerator.generateExpr(3, leaves, rand);
+            assertEquals(heap.add(e), offHeap.add(e));
+            assertTrue(offHeap.contains(e));
+        }
+        assertEquals(heap.size(), offHeap.size());
+    }
+
+    @Test
+    void testCapacityLimitCheckedUpfront() {  // 用例42: 超出判重集合容量的n在生成开始前即被拒绝，而不是中途失败
+        assertTrue(CanonicalSet.MAX_SIZE > 600_000_000);  // 支持数亿道题
+        assertThrows(IllegalArgumentException.class, () -> new CanonicalSet(CanonicalSet.MAX_SIZE + 1));
+        int[] accepted = {0};
+        GenerationEngine engine = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 1L, 2);
+        assertThrows(IllegalArgumentException.class, () -> engine.run(CanonicalSet.MAX_SIZE + 1, new ProblemSink() {
+            @Override
+            public void accept(Problem p) {
+                accepted[0]++;
+            }
+        }));
+        assertEquals(0, accepted[0]);
+        assertEquals(0, engine.attempts());
+    }
+}
@@ -0,0 +1,30 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectEvaluatorTest {
+    @Test
+    void testMatchesParser() {  // 用例30: 一遍求值与建树求值结果一致
+        DirectEvaluator direct = new DirectEvaluator();
+        List<Problem> problems = new GenerationEngine(ArithmeticGenerator.buildLeaves(20), 9L, 1).run(5000);
+        for (Problem p : problems) {
+            String s = p.expr.toInfix();
+            assertEquals(new ArithmeticGenerator.Parser(s).parse().eval(), direct.evaluate(s));
+        }
+        assertEquals(new Fraction(3, 8), direct.evaluate("1 / 2 * 3 / 4"));  // 左结合
+        assertEquals(new Fraction(1, 1), direct.evaluate("4 - (2 - 1) - 2"));
+    }
+
+    @Test
+    void testOverflowAndMalformed() {  // 用例31: long溢出回退到建树路径，格式错误抛异常
+        DirectEvaluator direct = new DirectEvaluator();
+        String big = Long.MAX_VALUE + " * " + Long.MAX_VALUE;
+        assertEquals(new ArithmeticGenerator.Parser(big).parse().eval(), direct.evaluate(big));
+        assertThrows(RuntimeException.class, () -> direct.evaluate("1 +"));
+        assertThrows(RuntimeException.class, () -> direct.evaluate("(1 + 2"));
+        assertThrows(RuntimeException.class, () -> direct.evaluate("1 2"));
+        assertThrows(RuntimeException.class, () -> direct.evaluate("1 / 0"));
+    }
+}
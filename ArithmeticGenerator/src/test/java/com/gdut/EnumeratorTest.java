@@ -0,0 +1,38 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnumeratorTest {
+    @Test
+    void testCountMatchesDedupedWalk() {  // 用例21: 枚举计数与逐个判重的结果一致
+        Enumerator space = Enumerator.build(ArithmeticGenerator.buildLeaves(2), Enumerator.LIMIT);
+        assertNotNull(space);
+        List<Problem> all = space.sample(Integer.MAX_VALUE, new SplittableRandom(1));
+        assertEquals(space.count(), all.size());
+        CanonicalSet set = new CanonicalSet();
+        for (Problem p : all) {
+            assertTrue(p.expr.isValid());
+            assertEquals(p.expr.eval(), p.value);
+            assertTrue(set.add(p.expr));  // 每个规范式只出现一次
+        }
+    }
+
+    @Test
+    void testSampleWithoutReplacement() {  // 用例22: 接近空间大小时无放回抽样，恰好n道
+        Enumerator space = Enumerator.build(ArithmeticGenerator.buildLeaves(2), Enumerator.LIMIT);
+        int n = (int) (space.count() * 3 / 4);
+        List<Problem> chosen = space.sample(n, new SplittableRandom(5));
+        assertEquals(n, chosen.size());
+        CanonicalSet set = new CanonicalSet();
+        for (Problem p : chosen) assertTrue(set.add(p.expr));
+    }
+
+    @Test
+    void testLargeRangeNotEnumerated() {  // 用例23: 空间过大时不枚举
+        assertNull(Enumerator.build(ArithmeticGenerator.buildLeaves(10), Enumerator.LIMIT));
+        assertNull(Enumerator.build(ArithmeticGenerator.buildLeaves(50), Enumerator.LIMIT));  // 上界溢出时同样不枚举
+    }
+}
@@ -0,0 +1,32 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExprPoolTest {
+    @Test
+    void testCandidatesAlwaysValid() {  // 用例24: 由子表达式池组合的候选均合法，接受率接近100%
+        ExprPool pool = ExprPool.build(ArithmeticGenerator.buildLeaves(10), new SplittableRandom(1), 1024);
+        SplittableRandom rand = new SplittableRandom(2);
+        FractionStack st = new FractionStack();
+        int accepted = 0;
+        for (int i = 0; i < 10000; i++) {
+            Problem p = pool.next(rand, st);
+            if (p == null) continue;
+            accepted++;
+            assertTrue(p.expr.isValid());
+            assertEquals(p.expr.eval(), p.value);
+        }
+        assertTrue(accepted > 9900, "accepted " + accepted);
+    }
+
+    @Test
+    void testPoolEngineExactCount() {  // 用例25: 子表达式池模式生成恰好n道不重复题目
+        List<Problem> problems = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 3L, 2, true).run(2000);
+        assertEquals(2000, problems.size());
+        CanonicalSet set = new CanonicalSet();
+        for (Problem p : problems) assertTrue(set.add(p.expr));
+    }
+}
@@ -1,6 +1,9 @@
 package com.gdut;
 
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ExprTest {
@@ -25,4 +28,24 @@ public class ExprTest {
         Expr outer = new Binary("+", new Leaf(new Fraction(1,1)), mid);
         assertEquals(new Fraction(5, 2), outer.eval());  // 修正：1 + 2*(3/4) = 5/2 = 2'1/2
     }
+
+    @Test
+    void testAnalyzeMatchesSeparatePasses() {  // 用例17: 单次遍历的结果与isValid/eval/getCanonical一致
+        List<Leaf> leaves = new ArrayList<>();
+        for (Fraction f : ArithmeticGenerator.buildLeaves(6)) leaves.add(new Leaf(f));
+        SplittableRandom randA = new SplittableRandom(3);
+        SplittableRandom randB = new SplittableRandom(3);  // 同种子生成结构相同的两棵树
+        FractionStack st = new FractionStack();
+        for (int i = 0; i < 5000; i++) {
+            Expr a = ArithmeticGenerator.generateExpr(3, leaves, randA);
+            Expr b = ArithmeticGenerator.generateExpr(3, leaves, randB);
+            st.clear();
+            boolean valid = a.analyze(st);
+            assertEquals(b.isValid(), valid);
+            if (valid) {
+                assertEquals(b.eval(), st.pop());
+                assertEquals(b.getCanonical(), a.getCanonical());
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.gdut;  // 你的包名
 
 import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class FractionTest {
@@ -35,4 +37,80 @@ public class FractionTest {
         Fraction f = Fraction.parse("2'1/2");
         assertEquals(new Fraction(5, 2), f);  // 2 + 1/2 = 5/2
     }
+
+    @Test
+    void testStackKernelMatchesFraction() {  // 用例13: 原始类型运算核与Fraction结果一致
+        Random rand = new Random(1);
+        FractionStack st = new FractionStack();
+        char[] ops = {'+', '-', '*', '/'};
+        for (int i = 0; i < 10000; i++) {
+            Fraction a = new Fraction(rand.nextInt(200) - 100, rand.nextInt(50) + 1);
+            Fraction b = new Fraction(rand.nextInt(200) - 100, rand.nextInt(50) + 1);
+            for (char op : ops) {
+                if (op == '/' && b.isZero()) continue;
+                st.clear();
+                st.push(a);
+                st.push(b);
+                st.apply(op, false);
+                Fraction expected = op == '+' ? a.add(b) : op == '-' ? a.subtract(b) : op == '*' ? a.multiply(b) : a.divide(b);
+                assertEquals(expected.getNumerator(), st.peekNum());
+                assertEquals(expected.getDenominator(), st.peekDen());
+            }
+        }
+    }
+
+    @Test
+    void testStackKernelRejectsInvalid() {  // 用例14: 校验模式拒绝负差、零除数和整数商
+        FractionStack st = new FractionStack();
+        st.push(new Fraction(1, 2));
+        st.push(new Fraction(3, 4));
+        assertFalse(st.apply('-', true));
+        st.clear();
+        st.push(new Fraction(3, 1));
+        st.push(new Fraction(0, 1));
+        assertFalse(st.apply('/', true));
+        st.clear();
+        st.push(new Fraction(3, 2));
+        st.push(new Fraction(1, 2));
+        assertFalse(st.apply('/', true));
+        assertEquals(0, st.size());
+    }
+
+    @Test
+    void testOverflowPromotesToBigInteger() {  // 用例15: long溢出时自动提升为BigInteger，结果仍精确
+        Fraction big = new Fraction(Long.MAX_VALUE, 5);
+        Fraction product = big.multiply(big);
+        java.math.BigInteger max = java.math.BigInteger.valueOf(Long.MAX_VALUE);
+        assertEquals(max.pow(2) + "", product.multiply(new Fraction(25, 1)).toString());
+        assertTrue(product.greaterThan(big));  // 旧实现溢出后比较结果错误
+        assertEquals(big, product.divide(big));  // 约分后降级回long表示
+        assertEquals(Long.MAX_VALUE, product.divide(big).getNumerator());
+    }
+
+    @Test
+    void testExprOverflowFallsBackToExactPath() {  // 用例16: 表达式求值溢出时回退到精确路径
+        Fraction huge = new Fraction(Long.MAX_VALUE - 1, 1);
+        Expr e = new Binary("-", new Binary("*", new Leaf(huge), new Leaf(huge)), new Leaf(huge));
+        assertTrue(e.isValid());
+        assertEquals(huge.multiply(huge).subtract(huge), e.eval());
+    }
+
+
+    @Test
+    void testKernelTreatsMinValueAsOverflow() {  // 用例45: 运算结果恰为Long.MIN_VALUE时按溢出处理并回退到BigInteger，而不是在gcd中死循环
+        Fraction min = new Fraction(Long.MIN_VALUE, 1);
+        assertThrows(ArithmeticException.class, () -> Fraction.gcd(Math.abs(Long.MIN_VALUE), 3));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            String s = "0 - 9223372036854775807 - 1";
+            assertEquals(min, DirectEvaluator.local().evaluate(s));
+            assertEquals(min, ArithmeticGenerator.Parser.local().reset(s).parse().eval());
+
+            FractionStack st = new FractionStack();
+            st.push(-(1L << 62), 1);
+            st.push(2, 1);
+            assertThrows(ArithmeticException.class, () -> st.apply('*', false));  // -2^62 * 2
+            Expr e = new Binary("*", new Leaf(new Fraction(-(1L << 62), 1)), new Leaf(new Fraction(2, 1)));
+            assertEquals(min, e.eval());
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParallelMatchesSequential() throws IOException {  // 用例27: 跨多个分块并行批改，结果与单线程一致且按题号有序
+        List<Problem> problems = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 5L, 1).run(3 * Grader.CHUNK_LINES + 17);
+        List<String> exer = new ArrayList<>();
+        List<String> ans = new ArrayList<>();
+        for (int i = 0; i < problems.size(); i++) {
+            Problem p = problems.get(i);
+            exer.add((i + 1) + ". " + p.expr.toInfix() + " =");
+            // 每7题写错一题，每11题写一个无法解析的答案
+            String answer = i % 7 == 0 ? p.value.add(new Fraction(1, 1)).toString() : i % 11 == 0 ? "abc" : p.value.toString();
+            ans.add((i + 1) + ". " + answer);
+        }
+        Files.write(tempDir.resolve("exer.txt"), exer);
+        Files.write(tempDir.resolve("ans.txt"), ans);
+        Grader.Result seq = new Grader(1).grade(tempDir.resolve("exer.txt"), tempDir.resolve("ans.txt"));
+        Grader.Result par = new Grader(4).grade(tempDir.resolve("exer.txt"), tempDir.resolve("ans.txt"));
+        assertArrayEquals(seq.correct, par.correct);
+        assertArrayEquals(seq.wrong, par.wrong);
+        assertEquals(problems.size(), par.correct.length + par.wrong.length);
+        for (int w : par.wrong) {
+            assertTrue((w - 1) % 7 == 0 || (w - 1) % 11 == 0);  // 错题号恰好是写错的题
+        }
+        for (int i = 1; i < par.correct.length; i++) {
+            assertTrue(par.correct[i - 1] < par.correct[i]);
+        }
+    }
+
+    @Test
+    void testIncrementalWithAnswerKey() throws IOException {  // 用例32: 答案缓存：未改动的题不再求值，改动的题重新求值
+        List<Problem> problems = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 6L, 1).run(Grader.CHUNK_LINES + 100);
+        List<String> exer = new ArrayList<>();
+        List<String> ans = new ArrayList<>();
+        for (int i = 0; i < problems.size(); i++) {
+            exer.add((i + 1) + ". " + problems.get(i).expr.toInfix() + " =");
+            ans.add((i + 1) + ". " + problems.get(i).value);
+        }
+        Path exerFile = tempDir.resolve("Exercises.txt"), ansFile = tempDir.resolve("Answers.txt");
+        Files.write(exerFile, exer);
+        Files.write(ansFile, ans);
+        Path key = AnswerKey.sidecar(exerFile);
+
+        Grader.Result first = new Grader(2, key).grade(exerFile, ansFile);
+        assertEquals(problems.size(), first.evaluated);  // 首次没有缓存，全部求值
+        assertEquals(problems.size(), first.correct.length);
+
+        // 改动第3题的题面（答案不再匹配），并改错第5题的答案
+        exer.set(2, "3. 1 + 1 =");
+        ans.set(4, "5. 12345");
+        Files.write(exerFile, exer);
+        Files.write(ansFile, ans);
+        Grader.Result second = new Grader(2, key).grade(exerFile, ansFile);
+        assertEquals(1, second.evaluated);  // 只有改动的题重新求值
+        Grader.Result plain = new Grader(1).grade(exerFile, ansFile);
+        assertArrayEquals(plain.correct, second.correct);
+        assertArrayEquals(plain.wrong, second.wrong);
+        assertEquals(0, new Grader(2, key).grade(exerFile, ansFile).evaluated);
+    }
+
+    @Test
+    void testTrustedKeyFromGeneration() throws IOException {  // 用例33: 生成时输出答案密钥，信任模式只比对答案不读题目
+        Options opts = new Options();
+        opts.numProblems = 3000;
+        opts.range = 10;
+        opts.seed = 4L;
+        opts.writeKey = true;
+        opts.outputDir = tempDir;
+        ArithmeticGenerator.generate(opts);
+        Path exerFile = tempDir.resolve("Exercises.txt"), ansFile = tempDir.resolve("Answers.txt");
+        List<String> ans = Files.readAllLines(ansFile);
+        ans.set(9, "10. 999");  // 改错第10题
+        Files.write(ansFile, ans);
+
+        Grader.Result checked = new Grader(1).grade(exerFile, ansFile);
+        Path key = AnswerKey.sidecar(exerFile);
+        Files.delete(exerFile);  // 信任模式下题目文件不会被读取
+        Grader.Result trusted = new Grader(2, key, true).grade(exerFile, ansFile);
+        assertEquals(0, trusted.evaluated);
+        assertArrayEquals(checked.correct, trusted.correct);
+        assertArrayEquals(new int[]{10}, trusted.wrong);
+    }
+
+    @Test
+    void testStaleKeyIsNotTrusted() throws IOException {  // 用例41: 不带--key重新生成后旧密钥被删除；与题目文件不符的密钥在信任模式下不被使用
+        Options opts = new Options();
+        opts.numProblems = 3000;
+        opts.range = 10;
+        opts.seed = 4L;
+        opts.writeKey = true;
+        opts.outputDir = tempDir;
+        ArithmeticGenerator.generate(opts);
+        Path exerFile = tempDir.resolve("Exercises.txt"), ansFile = tempDir.resolve("Answers.txt");
+        Path key = AnswerKey.sidecar(exerFile);
+        byte[] oldKey = Files.readAllBytes(key);
+
+        opts.seed = 5L;
+        opts.writeKey = false;
+        ArithmeticGenerator.generate(opts);
+        assertFalse(Files.exists(key));  // 旧密钥已删除
+        Grader.Result trusted = new Grader(2, key, true).grade(exerFile, ansFile);
+        assertEquals(3000, trusted.correct.length);
+        assertEquals(0, trusted.wrong.length);
+
+        // 旧密钥被放回（例如从别处复制）：大小/修改时间不符，照常求值而不是按旧密钥批改
+        Files.write(key, oldKey);
+        Grader.Result stale = new Grader(2, key, true).grade(exerFile, ansFile);
+        assertEquals(3000, stale.evaluated);
+        assertEquals(3000, stale.correct.length);
+        assertEquals(0, stale.wrong.length);
+    }
+
+    @Test
+    void testFlightRecorderEvents() throws IOException {  // 用例39: 批改各阶段与每个分块产生JFR事件，分块行数与正确/错误数合计一致
+        List<Problem> problems = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 9L, 1).run(2 * Grader.CHUNK_LINES + 5);
+        List<String> exer = new ArrayList<>();
+        List<String> ans = new ArrayList<>();
+        for (int i = 0; i < problems.size(); i++) {
+            exer.add((i + 1) + ". " + problems.get(i).expr.toInfix() + " =");
+            ans.add((i + 1) + ". " + (i % 5 == 0 ? "abc" : problems.get(i).value.toString()));
+        }
+        Files.write(tempDir.resolve("exer.txt"), exer);
+        Files.write(tempDir.resolve("ans.txt"), ans);
+
+        Path jfr = tempDir.resolve("grade.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.gdut.GradeStage");
+            recording.enable("com.gdut.GradeChunk");
+            recording.start();
+            new Grader(2).grade(tempDir.resolve("exer.txt"), tempDir.resolve("ans.txt")).write(tempDir.resolve("Grade.txt"));
+            recording.stop();
+            recording.dump(jfr);
+        }
+        Set<String> stages = new HashSet<>();
+        int chunks = 0, lines = 0, graded = 0;
+        for (RecordedEvent e : RecordingFile.readAllEvents(jfr)) {
+            if (e.getEventType().getName().equals("com.gdut.GradeStage")) {
+                stages.add(e.getString("stage"));
+            } else if (e.getEventType().getName().equals("com.gdut.GradeChunk")) {
+                chunks++;
+                lines += e.getInt("lines");
+                graded += e.getInt("correct") + e.getInt("wrong");
+            }
+        }
+        assertEquals(Set.of("open answers", "index answers", "open exercises", "index exercises", "grade",
+                "write report"), stages);
+        assertEquals(3, chunks);
+        assertEquals(problems.size(), lines);
+        assertEquals(problems.size(), graded);
+        RecordingSummary.summarize(jfr);
+    }
+}
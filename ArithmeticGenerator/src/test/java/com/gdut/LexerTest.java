@@ -0,0 +1,37 @@
+package com.gdut;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexerTest {
+    @Test
+    void testFractionLiterals() {  // 用例28: 真分数、带分数作为单个数字词法单元，紧贴的 / 属于分数
+        Lexer lex = new Lexer().reset("2'3/4 * (1/2 - 1 / 3)", 0, 21);
+        assertEquals(Lexer.NUMBER, lex.token());
+        assertEquals(11, lex.num);
+        assertEquals(4, lex.den);
+        assertEquals('*', lex.next());
+        assertEquals('(', lex.next());
+        assertEquals(Lexer.NUMBER, lex.next());
+        assertEquals(1, lex.num);
+        assertEquals(2, lex.den);
+        assertEquals('-', lex.next());
+        assertEquals(Lexer.NUMBER, lex.next());
+        assertEquals('/', lex.next());  // 两侧有空格的 / 是除号
+        assertEquals(Lexer.NUMBER, lex.next());
+        assertEquals(')', lex.next());
+        assertEquals(Lexer.END, lex.next());
+    }
+
+    @Test
+    void testParserRoundTrip() {  // 用例29: 解析 toInfix 输出得到同值表达式，乘除左结合
+        assertEquals(new Fraction(3, 8), new ArithmeticGenerator.Parser("1 / 2 * 3 / 4").parse().eval());
+        assertEquals(new Fraction(11, 4), new ArithmeticGenerator.Parser("2'3/4").parse().eval());
+        java.util.List<Problem> problems = new GenerationEngine(ArithmeticGenerator.buildLeaves(10), 3L, 1).run(2000);
+        for (Problem p : problems) {
+            Expr parsed = ArithmeticGenerator.Parser.local().reset(p.expr.toInfix()).parse();
+            assertEquals(p.value, parsed.eval());
+            assertEquals(p.expr.toInfix(), parsed.toInfix());
+        }
+    }
+}
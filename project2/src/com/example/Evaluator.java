@@ -113,21 +113,6 @@ public class Evaluator {
      * @return Fraction对象
      */
     private Fraction parseOperand(String token) {
-        if (token.contains("'")) {
-            // 带分数：e.g., 2'3/4
-            String[] parts = token.split("'");
-            int whole = Integer.parseInt(parts[0]);
-            String[] fracParts = parts[1].split("/");
-            int num = Integer.parseInt(fracParts[0]);
-            int den = Integer.parseInt(fracParts[1]);
-            return new Fraction(whole * den + num, den);
-        } else if (token.contains("/")) {
-            // 真分数：e.g., 3/5
-            String[] parts = token.split("/");
-            return new Fraction(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
-        } else {
-            // 自然数：e.g., 5
-            return new Fraction(Integer.parseInt(token), 1);
-        }
+        return Fraction.parse(token);
     }
 }
\ No newline at end of file
@@ -1,27 +1,64 @@
 package com.example;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 /**
- * 处理文件输出，批量写入 Exercises.txt 和 Answers.txt。
- * 优化为一次性写入，减少IO操作。
+ * 处理文件输出，边生成边写入 Exercises.txt 和 Answers.txt。
+ * 输出先在内存中累积，每满 flushBytes 字节才写一次磁盘，减少小块写入。
  */
 public class ExerciseFileWriter {
+    /** 默认刷盘批量大小：1MB */
+    public static final int DEFAULT_FLUSH_BYTES = 1 << 20;
+
+    private final int flushBytes;
+
+    /**
+     * 使用默认刷盘批量大小。
+     */
+    public ExerciseFileWriter() {
+        this(DEFAULT_FLUSH_BYTES);
+    }
+
+    /**
+     * @param flushBytes 每次写盘的字节数
+     */
+    public ExerciseFileWriter(int flushBytes) {
+        this.flushBytes = flushBytes;
+    }
+
     /**
-     * 将字符串列表写入文件。
+     * 打开带缓冲的文件写入器，用于逐行流式写出，由调用方负责关闭。
+     * 编码与原先的 FileWriter 相同（平台默认编码）。
      * @param fileName 文件名
-     * @param lines 要写入的行
+     * @return 缓冲写入器
+     * @throws IOException 文件无法创建时抛出
+     */
+    public BufferedWriter open(String fileName) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                new BufferedOutputStream(Files.newOutputStream(Paths.get(fileName)), flushBytes),
+                Charset.defaultCharset()));
+    }
+
+    /**
+     * 写出一行 "序号. 正文后缀"，逐段写入缓冲区，不拼接字符串。
+     * @param out 写入器
+     * @param number 题号
+     * @param body 题目或答案
+     * @param suffix 行尾后缀（题目为 " ="，答案为空串）
+     * @throws IOException 写入失败时抛出
      */
-    public void writeToFile(String fileName, List<String> lines) {
-        try (BufferedWriter writer = new BufferedWriter(new java.io.FileWriter(fileName))) {
-            for (String line : lines) {
-                writer.write(line);
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to write to " + fileName + ": " + e.getMessage());
-        }
+    public void writeLine(Writer out, int number, String body, String suffix) throws IOException {
+        out.write(Integer.toString(number));
+        out.write(". ");
+        out.write(body);
+        out.write(suffix);
+        out.write(System.lineSeparator());
     }
 }
\ No newline at end of file
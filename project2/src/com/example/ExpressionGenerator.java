@@ -1,5 +1,7 @@
 package com.example;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -14,7 +16,22 @@ public class ExpressionGenerator {
     private final Random rand;      // 随机数生成器
     private final Evaluator evaluator; // 表达式计算器
     private final UniqueChecker uniqueChecker; // 唯一性检查器
-    private final ExerciseFileWriter fileWriter; // 文件写入器
+    private long attempts;          // 已生成的候选表达式数
+    private long rejectedInvalid;   // 因除零或结果非正被拒绝的候选数
+    private long rejectedDuplicate; // 因重复被拒绝的候选数
+
+    /**
+     * 接收已接受题目的回调。
+     */
+    public interface Sink {
+        /**
+         * @param number 题号，从1开始
+         * @param expr 表达式
+         * @param value 答案
+         * @throws IOException 写出失败时抛出
+         */
+        void accept(int number, String expr, Fraction value) throws IOException;
+    }
 
     /**
      * 构造函数，初始化生成参数。
@@ -22,35 +39,95 @@ public class ExpressionGenerator {
      * @param range 数值和分母范围
      */
     public ExpressionGenerator(int numQuestions, int range) {
+        this(numQuestions, range, new Random());
+    }
+
+    /**
+     * 构造函数，使用固定种子，相同种子和参数生成逐字节相同的题目文件。
+     * @param numQuestions 题目数量
+     * @param range 数值和分母范围
+     * @param seed 随机种子
+     */
+    public ExpressionGenerator(int numQuestions, int range, long seed) {
+        this(numQuestions, range, new Random(seed));
+    }
+
+    private ExpressionGenerator(int numQuestions, int range, Random rand) {
         this.numQuestions = numQuestions;
         this.range = range;
-        this.rand = new Random();
+        this.rand = rand;
         this.evaluator = new Evaluator();
         this.uniqueChecker = new UniqueChecker();
-        this.fileWriter = new ExerciseFileWriter(); // 使用新类名，无参构造函数
     }
 
     /**
-     * 生成题目并保存到文件（Exercises.txt 和 Answers.txt）。
+     * 生成题目并边生成边写入文件（Exercises.txt 和 Answers.txt），使用默认刷盘批量大小。
      */
     public void generateAndSave() {
-        List<String> exercises = new ArrayList<>();
-        List<String> answers = new ArrayList<>();
+        generateAndSave(ExerciseFileWriter.DEFAULT_FLUSH_BYTES);
+    }
 
+    /**
+     * 生成题目并边生成边写入文件（Exercises.txt 和 Answers.txt）。
+     * 内存中只保留查重状态，已接受的题目直接写出，不再整体缓存。
+     * @param flushBytes 每次写盘的字节数
+     */
+    public void generateAndSave(int flushBytes) {
+        ExerciseFileWriter fileWriter = new ExerciseFileWriter(flushBytes);
+        try (BufferedWriter exercises = fileWriter.open("Exercises.txt");
+             BufferedWriter answers = fileWriter.open("Answers.txt")) {
+            generate((number, expr, value) -> {
+                fileWriter.writeLine(exercises, number, expr, " =");
+                fileWriter.writeLine(answers, number, value.format(), "");
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write exercises: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 生成题目并逐道交给 sink，不写文件；尝试与拒绝次数计入计数器。
+     * @param sink 接收已接受的题目
+     * @throws IOException sink 写出失败时抛出
+     */
+    public void generate(Sink sink) throws IOException {
+        int count = 0;
         // 循环生成直到达到所需题目数量
-        while (exercises.size() < numQuestions) {
+        while (count < numQuestions) {
             String expr = generateExpression();
+            attempts++;
             Fraction value = evaluator.evaluate(expr);
             // 检查约束：非负结果、无除零、唯一
-            if (value != null && value.isPositive() && uniqueChecker.isUnique(expr)) {
-                exercises.add((exercises.size() + 1) + ". " + expr + " =");
-                answers.add((answers.size() + 1) + ". " + value.format());
+            if (value == null || !value.isPositive()) {
+                rejectedInvalid++;
+            } else if (!uniqueChecker.isUnique(expr)) {
+                rejectedDuplicate++;
+            } else {
+                count++;
+                sink.accept(count, expr, value);
             }
         }
+    }
 
-        // 批量写入文件
-        fileWriter.writeToFile("Exercises.txt", exercises);
-        fileWriter.writeToFile("Answers.txt", answers);
+    /**
+     * @return 已生成的候选表达式数
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return 因除零或结果非正被拒绝的候选数
+     */
+    public long getRejectedInvalid() {
+        return rejectedInvalid;
+    }
+
+    /**
+     * @return 因重复被拒绝的候选数
+     */
+    public long getRejectedDuplicate() {
+        return rejectedDuplicate;
     }
 
     /**
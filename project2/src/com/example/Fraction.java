@@ -1,12 +1,17 @@
 package com.example;
 
+import java.math.BigInteger;
+
 /**
  * 表示真分数或带分数的类，支持四则运算和格式化输出。
  * 自动简化分数，处理自然数、真分数和带分数格式（如3/5, 2'3/8）。
+ * 运算先走long快速路径（Math.multiplyExact检测溢出），溢出时才提升为BigInteger表示。
  */
 public class Fraction {
     private final long numerator;   // 分子
     private final long denominator; // 分母
+    private final BigInteger bigNumerator;   // 溢出时的分子（否则为null）
+    private final BigInteger bigDenominator; // 溢出时的分母（否则为null）
 
     public static final Fraction ZERO = new Fraction(0, 1);
 
@@ -20,6 +25,14 @@ public class Fraction {
         if (denominator == 0) {
             throw new IllegalArgumentException("Denominator cannot be zero");
         }
+        if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE) {
+            Fraction big = new Fraction(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+            this.numerator = big.numerator;
+            this.denominator = big.denominator;
+            this.bigNumerator = big.bigNumerator;
+            this.bigDenominator = big.bigDenominator;
+            return;
+        }
         // 规范化符号：负号移到分子，分母保持正
         long adjustedNumerator = numerator;
         long adjustedDenominator = denominator;
@@ -31,6 +44,56 @@ public class Fraction {
         long gcd = gcd(Math.abs(adjustedNumerator), Math.abs(adjustedDenominator));
         this.numerator = adjustedNumerator / gcd;
         this.denominator = adjustedDenominator / gcd;
+        this.bigNumerator = null;
+        this.bigDenominator = null;
+    }
+
+    /**
+     * BigInteger构造函数，约分后若能放入long则降级为long表示。
+     * @param numerator 分子
+     * @param denominator 分母（不为0）
+     */
+    private Fraction(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() == 0) {
+            throw new IllegalArgumentException("Denominator cannot be zero");
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        BigInteger num = numerator.divide(gcd);
+        BigInteger den = denominator.divide(gcd);
+        if (den.signum() < 0) {
+            num = num.negate();
+            den = den.negate();
+        }
+        if (fitsLong(num) && fitsLong(den)) {
+            this.numerator = num.longValue();
+            this.denominator = den.longValue();
+            this.bigNumerator = null;
+            this.bigDenominator = null;
+        } else {
+            this.numerator = 0;
+            this.denominator = 1;
+            this.bigNumerator = num;
+            this.bigDenominator = den;
+        }
+    }
+
+    /**
+     * 检查BigInteger能否安全放入long（排除Long.MIN_VALUE以保证取反安全）。
+     */
+    private static boolean fitsLong(BigInteger x) {
+        return x.bitLength() < 64 && x.longValue() != Long.MIN_VALUE;
+    }
+
+    private boolean isBig() {
+        return bigNumerator != null;
+    }
+
+    private BigInteger bigNum() {
+        return bigNumerator != null ? bigNumerator : BigInteger.valueOf(numerator);
+    }
+
+    private BigInteger bigDen() {
+        return bigDenominator != null ? bigDenominator : BigInteger.valueOf(denominator);
     }
 
     /**
@@ -39,9 +102,18 @@ public class Fraction {
      * @return 结果分数
      */
     public Fraction add(Fraction other) {
-        long newNum = this.numerator * other.denominator + other.numerator * this.denominator;
-        long newDen = this.denominator * other.denominator;
-        return new Fraction(newNum, newDen);
+        if (!isBig() && !other.isBig()) {
+            try {
+                long newNum = Math.addExact(Math.multiplyExact(this.numerator, other.denominator),
+                        Math.multiplyExact(other.numerator, this.denominator));
+                long newDen = Math.multiplyExact(this.denominator, other.denominator);
+                return new Fraction(newNum, newDen);
+            } catch (ArithmeticException overflow) {
+                // 溢出，改用BigInteger
+            }
+        }
+        return new Fraction(bigNum().multiply(other.bigDen()).add(other.bigNum().multiply(bigDen())),
+                bigDen().multiply(other.bigDen()));
     }
 
     /**
@@ -50,9 +122,21 @@ public class Fraction {
      * @return 结果分数，或null（如果结果负数）
      */
     public Fraction subtract(Fraction other) {
-        long newNum = this.numerator * other.denominator - other.numerator * this.denominator;
-        long newDen = this.denominator * other.denominator;
-        Fraction result = new Fraction(newNum, newDen);
+        Fraction result = null;
+        if (!isBig() && !other.isBig()) {
+            try {
+                long newNum = Math.subtractExact(Math.multiplyExact(this.numerator, other.denominator),
+                        Math.multiplyExact(other.numerator, this.denominator));
+                long newDen = Math.multiplyExact(this.denominator, other.denominator);
+                result = new Fraction(newNum, newDen);
+            } catch (ArithmeticException overflow) {
+                // 溢出，改用BigInteger
+            }
+        }
+        if (result == null) {
+            result = new Fraction(bigNum().multiply(other.bigDen()).subtract(other.bigNum().multiply(bigDen())),
+                    bigDen().multiply(other.bigDen()));
+        }
         return result.isPositive() ? result : null;
     }
 
@@ -62,7 +146,15 @@ public class Fraction {
      * @return 结果分数
      */
     public Fraction multiply(Fraction other) {
-        return new Fraction(this.numerator * other.numerator, this.denominator * other.denominator);
+        if (!isBig() && !other.isBig()) {
+            try {
+                return new Fraction(Math.multiplyExact(this.numerator, other.numerator),
+                        Math.multiplyExact(this.denominator, other.denominator));
+            } catch (ArithmeticException overflow) {
+                // 溢出，改用BigInteger
+            }
+        }
+        return new Fraction(bigNum().multiply(other.bigNum()), bigDen().multiply(other.bigDen()));
     }
 
     /**
@@ -71,10 +163,18 @@ public class Fraction {
      * @return 结果分数，或null（如果除数为0）
      */
     public Fraction divide(Fraction other) {
-        if (other.numerator == 0) {
+        if (!other.isBig() && other.numerator == 0) {
             return null;
         }
-        return new Fraction(this.numerator * other.denominator, this.denominator * other.numerator);
+        if (!isBig() && !other.isBig()) {
+            try {
+                return new Fraction(Math.multiplyExact(this.numerator, other.denominator),
+                        Math.multiplyExact(this.denominator, other.numerator));
+            } catch (ArithmeticException overflow) {
+                // 溢出，改用BigInteger
+            }
+        }
+        return new Fraction(bigNum().multiply(other.bigDen()), bigDen().multiply(other.bigNum()));
     }
 
     /**
@@ -82,6 +182,19 @@ public class Fraction {
      * @return 格式化后的字符串
      */
     public String format() {
+        if (isBig()) {
+            if (bigDenominator.equals(BigInteger.ONE)) {
+                return bigNumerator.toString();
+            }
+            BigInteger[] qr = bigNumerator.divideAndRemainder(bigDenominator);
+            if (bigNumerator.compareTo(bigDenominator) >= 0) {
+                if (qr[1].signum() == 0) {
+                    return qr[0].toString();
+                }
+                return qr[0] + "'" + qr[1] + "/" + bigDenominator;
+            }
+            return bigNumerator + "/" + bigDenominator;
+        }
         if (denominator == 1) {
             return String.valueOf(numerator);
         }
@@ -101,6 +214,9 @@ public class Fraction {
      * @return true 如果分数非负
      */
     public boolean isPositive() {
+        if (isBig()) {
+            return bigNumerator.signum() >= 0;
+        }
         return numerator >= 0 && denominator > 0;
     }
 
@@ -110,9 +226,37 @@ public class Fraction {
      * @return 负数（小于）、0（等于）、正数（大于）
      */
     public int compareTo(Fraction other) {
-        long left = this.numerator * other.denominator;
-        long right = other.numerator * this.denominator;
-        return Long.compare(left, right);
+        if (!isBig() && !other.isBig()) {
+            try {
+                long left = Math.multiplyExact(this.numerator, other.denominator);
+                long right = Math.multiplyExact(other.numerator, this.denominator);
+                return Long.compare(left, right);
+            } catch (ArithmeticException overflow) {
+                // 溢出，改用BigInteger
+            }
+        }
+        return bigNum().multiply(other.bigDen()).compareTo(other.bigNum().multiply(bigDen()));
+    }
+
+    /**
+     * 解析操作数字符串（自然数、真分数或带分数，如 5、3/5、2'3/8）。
+     * @param token 操作数字符串
+     * @return Fraction对象
+     */
+    public static Fraction parse(String token) {
+        if (token.contains("'")) {
+            String[] parts = token.split("'");
+            long whole = Long.parseLong(parts[0]);
+            String[] fracParts = parts[1].split("/");
+            long num = Long.parseLong(fracParts[0]);
+            long den = Long.parseLong(fracParts[1]);
+            return new Fraction(whole, 1).add(new Fraction(num, den));
+        } else if (token.contains("/")) {
+            String[] parts = token.split("/");
+            return new Fraction(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } else {
+            return new Fraction(Long.parseLong(token), 1);
+        }
     }
 
     /**
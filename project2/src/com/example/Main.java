@@ -13,14 +13,20 @@ public class Main {
                 System.exit(1);
             }
 
-            // 解析 -n 和 -r 参数
+            // 解析 -n、-r 和可选的 --seed、--flush 参数
             int numQuestions = -1;
             int range = -1;
+            Long seed = null;
+            int flushBytes = ExerciseFileWriter.DEFAULT_FLUSH_BYTES;
             for (int i = 0; i < args.length; i += 2) {
                 if (args[i].equals("-n")) {
                     numQuestions = Integer.parseInt(args[i + 1]);
                 } else if (args[i].equals("-r")) {
                     range = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                    seed = Long.parseLong(args[i + 1]);
+                } else if (args[i].equals("--flush") && i + 1 < args.length) {
+                    flushBytes = Integer.parseInt(args[i + 1]);
                 } else {
                     printHelp();
                     System.exit(1);
@@ -33,13 +39,20 @@ public class Main {
                 printHelp();
                 System.exit(1);
             }
+            if (flushBytes <= 0) {
+                System.out.println("Error: --flush must be a positive integer");
+                printHelp();
+                System.exit(1);
+            }
 
             // 启动题目生成
-            ExpressionGenerator generator = new ExpressionGenerator(numQuestions, range);
-            generator.generateAndSave();
+            ExpressionGenerator generator = seed != null
+                    ? new ExpressionGenerator(numQuestions, range, seed)
+                    : new ExpressionGenerator(numQuestions, range);
+            generator.generateAndSave(flushBytes);
 
         } catch (NumberFormatException e) {
-            System.out.println("Error: Invalid number format for -n or -r");
+            System.out.println("Error: Invalid number format for -n, -r, --seed or --flush");
             printHelp();
             System.exit(1);
         } catch (Exception e) {
@@ -53,8 +66,10 @@ public class Main {
      * 打印帮助信息，当参数无效时调用。
      */
     private static void printHelp() {
-        System.out.println("Usage: java Main -n <number> -r <range>");
+        System.out.println("Usage: java Main -n <number> -r <range> [--seed <seed>] [--flush <bytes>]");
         System.out.println("  -n: Number of questions to generate (positive integer)");
         System.out.println("  -r: Range of numbers and denominators (positive integer)");
+        System.out.println("  --seed: Random seed; same seed and parameters give identical output");
+        System.out.println("  --flush: Bytes buffered before each write to disk (default 1MB)");
     }
 }
\ No newline at end of file
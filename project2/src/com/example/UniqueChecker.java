@@ -4,8 +4,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 /**
- * 检查表达式唯一性，处理加法和乘法交换律（如 a + b 和 b + a 视为相同）。
- * 使用规范化表达式存储在Set中，快速判重。
+ * 检查表达式唯一性，处理加法和乘法交换律（如 a + b 和 b + a、(1 + 2) + 3 和 3 + (2 + 1) 视为相同）。
+ * 先把表达式解析成语法树，再自底向上生成规范式：对 + 和 × 结点在两种子树顺序中取字典序较小者，
+ * 与 com.gdut.Binary.getCanonical 的规则一致。规范式存储在Set中，快速判重。
  */
 public class UniqueChecker {
     private final Set<String> uniqueExprs; // 存储规范化表达式
@@ -18,42 +19,85 @@ public class UniqueChecker {
     }
 
     /**
-     * 检查表达式是否唯一。
+     * 检查表达式是否唯一，唯一时记录其规范式。
      * @param expr 表达式字符串
      * @return true 如果表达式唯一，false 如果重复
      */
     public boolean isUnique(String expr) {
-        String normalized = normalize(expr);
-        if (uniqueExprs.contains(normalized)) {
-            return false;
-        }
-        uniqueExprs.add(normalized);
-        return true;
+        return uniqueExprs.add(normalize(expr));
     }
 
     /**
-     * 规范化表达式，处理加法/乘法交换律。
-     * @param expr 原始表达式
+     * 规范化表达式：解析为树并对可交换运算的操作数排序。
+     * @param expr 原始表达式（token以空格分隔）
      * @return 规范化后的字符串
      */
-    private String normalize(String expr) {
-        // 简单实现：替换×为*，÷为/，按操作数排序（仅处理简单情况）
-        String[] tokens = expr.replace("×", "*").replace("÷", "/").split("\\s+");
-        StringBuilder normalized = new StringBuilder();
-        for (int i = 0; i < tokens.length; i++) {
-            if (tokens[i].equals("+") || tokens[i].equals("*")) {
-                // 对加法/乘法操作数排序
-                if (i > 0 && i < tokens.length - 1) {
-                    String[] operands = new String[]{tokens[i - 1], tokens[i + 1]};
-                    java.util.Arrays.sort(operands);
-                    normalized.setLength(normalized.length() - tokens[i - 1].length() - 1);
-                    normalized.append(operands[0]).append(" ").append(tokens[i]).append(" ").append(operands[1]);
-                    i++; // 跳过下一个操作数
-                    continue;
+    String normalize(String expr) {
+        String[] tokens = expr.trim().split("\\s+");
+        CanonicalParser parser = new CanonicalParser(tokens);
+        try {
+            String canonical = parser.parseAdd();
+            if (parser.pos == tokens.length) {
+                return canonical;
+            }
+        } catch (RuntimeException e) {
+            // 非法表达式，退回原始token序列
+        }
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * 递归下降解析器，按Evaluator相同的优先级（同级左结合）直接产出子树规范式。
+     */
+    private static class CanonicalParser {
+        private final String[] tokens;
+        private int pos;
+
+        CanonicalParser(String[] tokens) {
+            this.tokens = tokens;
+        }
+
+        String parseAdd() {
+            String left = parseMul();
+            while (pos < tokens.length && (tokens[pos].equals("+") || tokens[pos].equals("-"))) {
+                String op = tokens[pos++];
+                left = combine(op, left, parseMul());
+            }
+            return left;
+        }
+
+        String parseMul() {
+            String left = parseAtom();
+            while (pos < tokens.length && (tokens[pos].equals("×") || tokens[pos].equals("÷"))) {
+                String op = tokens[pos++].equals("×") ? "*" : "/";
+                left = combine(op, left, parseAtom());
+            }
+            return left;
+        }
+
+        String parseAtom() {
+            String token = tokens[pos++];
+            if (token.equals("(")) {
+                String inner = parseAdd();
+                if (!tokens[pos++].equals(")")) {
+                    throw new IllegalStateException("Missing )");
                 }
+                return inner;
+            }
+            // 操作数按值规范化，2/4 与 1/2 视为同一操作数
+            return Fraction.parse(token).format();
+        }
+
+        /**
+         * 组合子树规范式，可交换运算取两种顺序中较小者。
+         */
+        private static String combine(String op, String left, String right) {
+            String s = "(" + left + " " + op + " " + right + ")";
+            if (op.equals("+") || op.equals("*")) {
+                String alt = "(" + right + " " + op + " " + left + ")";
+                return s.compareTo(alt) < 0 ? s : alt;
             }
-            normalized.append(tokens[i]).append(" ");
+            return s;
         }
-        return normalized.toString().trim();
     }
 }
\ No newline at end of file